@@ -1,16 +1,19 @@
 package br.com.project.libraryapi;
 
-import org.modelmapper.ModelMapper;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.context.annotation.Bean;
 
+import br.com.project.libraryapi.api.mapper.BookMapper;
+
 @SpringBootApplication
+@EnableCaching
 public class LibraryApiApplication {
 	
 	@Bean
-	public ModelMapper modelMapper() {
-		return new ModelMapper();
+	public BookMapper bookMapper() {
+		return new BookMapper();
 	}
 
 	public static void main(String[] args) {
@@ -0,0 +1,59 @@
+package br.com.project.libraryapi.api.dto;
+
+public class BookBatchItemDto {
+
+	public static final String CREATED = "CREATED";
+	public static final String REJECTED = "REJECTED";
+
+	private Long id;
+	private String isbn;
+	private String status;
+	private String error;
+
+	public BookBatchItemDto() {}
+
+	public BookBatchItemDto(Long id, String isbn, String status, String error) {
+		this.id = id;
+		this.isbn = isbn;
+		this.status = status;
+		this.error = error;
+	}
+
+	public Long getId() {
+		return id;
+	}
+
+	public void setId(Long id) {
+		this.id = id;
+	}
+
+	public String getIsbn() {
+		return isbn;
+	}
+
+	public void setIsbn(String isbn) {
+		this.isbn = isbn;
+	}
+
+	public String getStatus() {
+		return status;
+	}
+
+	public void setStatus(String status) {
+		this.status = status;
+	}
+
+	public String getError() {
+		return error;
+	}
+
+	public void setError(String error) {
+		this.error = error;
+	}
+
+	@Override
+	public String toString() {
+		return "BookBatchItemDto [id=" + id + ", isbn=" + isbn + ", status=" + status + ", error=" + error + "]";
+	}
+
+}
@@ -0,0 +1,94 @@
+package br.com.project.libraryapi.api.dto;
+
+import java.time.Instant;
+
+public class BookChangeDto {
+
+	private Long id;
+	private String type;
+	private Long bookId;
+	private String title;
+	private String author;
+	private String isbn;
+	private Long version;
+	private Instant changedAt;
+
+	public BookChangeDto() {}
+
+	public BookChangeDto(Long id, String type, Long bookId, String title, String author, String isbn, Long version,
+			Instant changedAt) {
+		this.id = id;
+		this.type = type;
+		this.bookId = bookId;
+		this.title = title;
+		this.author = author;
+		this.isbn = isbn;
+		this.version = version;
+		this.changedAt = changedAt;
+	}
+
+	public Long getId() {
+		return id;
+	}
+
+	public void setId(Long id) {
+		this.id = id;
+	}
+
+	public String getType() {
+		return type;
+	}
+
+	public void setType(String type) {
+		this.type = type;
+	}
+
+	public Long getBookId() {
+		return bookId;
+	}
+
+	public void setBookId(Long bookId) {
+		this.bookId = bookId;
+	}
+
+	public String getTitle() {
+		return title;
+	}
+
+	public void setTitle(String title) {
+		this.title = title;
+	}
+
+	public String getAuthor() {
+		return author;
+	}
+
+	public void setAuthor(String author) {
+		this.author = author;
+	}
+
+	public String getIsbn() {
+		return isbn;
+	}
+
+	public void setIsbn(String isbn) {
+		this.isbn = isbn;
+	}
+
+	public Long getVersion() {
+		return version;
+	}
+
+	public void setVersion(Long version) {
+		this.version = version;
+	}
+
+	public Instant getChangedAt() {
+		return changedAt;
+	}
+
+	public void setChangedAt(Instant changedAt) {
+		this.changedAt = changedAt;
+	}
+
+}
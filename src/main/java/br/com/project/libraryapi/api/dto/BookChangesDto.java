@@ -0,0 +1,33 @@
+package br.com.project.libraryapi.api.dto;
+
+import java.util.List;
+
+public class BookChangesDto {
+
+	private List<BookChangeDto> changes;
+	private long next;
+
+	public BookChangesDto() {}
+
+	public BookChangesDto(List<BookChangeDto> changes, long next) {
+		this.changes = changes;
+		this.next = next;
+	}
+
+	public List<BookChangeDto> getChanges() {
+		return changes;
+	}
+
+	public void setChanges(List<BookChangeDto> changes) {
+		this.changes = changes;
+	}
+
+	public long getNext() {
+		return next;
+	}
+
+	public void setNext(long next) {
+		this.next = next;
+	}
+
+}
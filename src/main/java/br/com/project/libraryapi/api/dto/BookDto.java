@@ -2,6 +2,8 @@ package br.com.project.libraryapi.api.dto;
 
 import javax.validation.constraints.NotEmpty;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+
 public class BookDto {
 
 	private Long id;
@@ -11,6 +13,8 @@ public class BookDto {
 	private String author;
 	@NotEmpty
 	private String isbn;
+	@JsonInclude(JsonInclude.Include.NON_NULL)
+	private Long version;
 	
 	
 	public BookDto() {}
@@ -54,9 +58,18 @@ public class BookDto {
 		this.isbn = isbn;
 	}
 
+	public Long getVersion() {
+		return version;
+	}
+
+	public void setVersion(Long version) {
+		this.version = version;
+	}
+
 	@Override
 	public String toString() {
-		return "BookDto [id=" + id + ", title=" + title + ", author=" + author + ", isbn=" + isbn + "]";
+		return "BookDto [id=" + id + ", title=" + title + ", author=" + author + ", isbn=" + isbn + ", version="
+				+ version + "]";
 	}
 	
 	
@@ -0,0 +1,33 @@
+package br.com.project.libraryapi.api.dto;
+
+import java.util.List;
+
+public class BookLookupDto {
+
+	private List<BookDto> content;
+	private List<Long> missing;
+
+	public BookLookupDto() {}
+
+	public BookLookupDto(List<BookDto> content, List<Long> missing) {
+		this.content = content;
+		this.missing = missing;
+	}
+
+	public List<BookDto> getContent() {
+		return content;
+	}
+
+	public void setContent(List<BookDto> content) {
+		this.content = content;
+	}
+
+	public List<Long> getMissing() {
+		return missing;
+	}
+
+	public void setMissing(List<Long> missing) {
+		this.missing = missing;
+	}
+
+}
@@ -0,0 +1,59 @@
+package br.com.project.libraryapi.api.dto;
+
+import java.util.List;
+
+import br.com.project.libraryapi.model.repository.BookView;
+
+/**
+ * Compact page of books: the content and the numbers a client pages with,
+ * without the Page and Pageable structure of the default representation.
+ */
+public class BookPageDto {
+
+	private List<BookView> content;
+	private int page;
+	private int size;
+	private long totalElements;
+
+	public BookPageDto() {}
+
+	public BookPageDto(List<BookView> content, int page, int size, long totalElements) {
+		this.content = content;
+		this.page = page;
+		this.size = size;
+		this.totalElements = totalElements;
+	}
+
+	public List<BookView> getContent() {
+		return content;
+	}
+
+	public void setContent(List<BookView> content) {
+		this.content = content;
+	}
+
+	public int getPage() {
+		return page;
+	}
+
+	public void setPage(int page) {
+		this.page = page;
+	}
+
+	public int getSize() {
+		return size;
+	}
+
+	public void setSize(int size) {
+		this.size = size;
+	}
+
+	public long getTotalElements() {
+		return totalElements;
+	}
+
+	public void setTotalElements(long totalElements) {
+		this.totalElements = totalElements;
+	}
+
+}
@@ -0,0 +1,53 @@
+package br.com.project.libraryapi.api.dto;
+
+import java.util.List;
+
+public class BookSliceDto {
+
+	private List<BookDto> content;
+	private int size;
+	private boolean hasNext;
+	private String next;
+
+	public BookSliceDto() {}
+
+	public BookSliceDto(List<BookDto> content, int size, boolean hasNext, String next) {
+		this.content = content;
+		this.size = size;
+		this.hasNext = hasNext;
+		this.next = next;
+	}
+
+	public List<BookDto> getContent() {
+		return content;
+	}
+
+	public void setContent(List<BookDto> content) {
+		this.content = content;
+	}
+
+	public int getSize() {
+		return size;
+	}
+
+	public void setSize(int size) {
+		this.size = size;
+	}
+
+	public boolean isHasNext() {
+		return hasNext;
+	}
+
+	public void setHasNext(boolean hasNext) {
+		this.hasNext = hasNext;
+	}
+
+	public String getNext() {
+		return next;
+	}
+
+	public void setNext(String next) {
+		this.next = next;
+	}
+
+}
@@ -0,0 +1,51 @@
+package br.com.project.libraryapi.api.dto;
+
+public class BookWriteDto {
+
+	private String ticket;
+	private String status;
+	private Long id;
+	private String error;
+
+	public BookWriteDto() {}
+
+	public BookWriteDto(String ticket, String status, Long id, String error) {
+		this.ticket = ticket;
+		this.status = status;
+		this.id = id;
+		this.error = error;
+	}
+
+	public String getTicket() {
+		return ticket;
+	}
+
+	public void setTicket(String ticket) {
+		this.ticket = ticket;
+	}
+
+	public String getStatus() {
+		return status;
+	}
+
+	public void setStatus(String status) {
+		this.status = status;
+	}
+
+	public Long getId() {
+		return id;
+	}
+
+	public void setId(Long id) {
+		this.id = id;
+	}
+
+	public String getError() {
+		return error;
+	}
+
+	public void setError(String error) {
+		this.error = error;
+	}
+
+}
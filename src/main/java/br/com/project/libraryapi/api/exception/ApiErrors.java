@@ -21,6 +21,10 @@ public class ApiErrors {
 		this.errors = Arrays.asList(exception.getMessage());
 	}
 
+	public ApiErrors(String error) {
+		this.errors = Arrays.asList(error);
+	}
+
 	public List<String> getErrors() {
 		return errors;
 	}
@@ -0,0 +1,81 @@
+package br.com.project.libraryapi.api.limit;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bounds the requests in flight with a limit that follows the observed
+ * latency: it shrinks by a tenth when a request takes longer than the
+ * tolerance times the baseline latency, at most once per window of samples,
+ * and grows by one per limit-worth of fast requests. The baseline is a moving
+ * average of the fastest latency of each window, so it follows slow changes
+ * of the workload while a single fast outlier does not make every other
+ * request look slow.
+ */
+public class AdaptiveConcurrencyLimiter {
+
+	public static final int WINDOW = 500;
+	/* weight of the last window minimum in the baseline */
+	private static final double SMOOTHING = 0.2;
+
+	private final int minLimit;
+	private final int maxLimit;
+	private final double tolerance;
+	private final AtomicInteger inFlight = new AtomicInteger();
+	private volatile double limit;
+
+	private double baselineNanos = Double.NaN;
+	private long windowMinNanos = Long.MAX_VALUE;
+	private int windowSamples;
+	private boolean shrunk;
+
+	public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, double tolerance) {
+		this.limit = initialLimit;
+		this.minLimit = minLimit;
+		this.maxLimit = maxLimit;
+		this.tolerance = tolerance;
+	}
+
+	public boolean tryAcquire() {
+		while (true) {
+			int current = inFlight.get();
+			if (current >= (int) limit) {
+				return false;
+			}
+			if (inFlight.compareAndSet(current, current + 1)) {
+				return true;
+			}
+		}
+	}
+
+	public void release(long latencyNanos) {
+		inFlight.decrementAndGet();
+		synchronized (this) {
+			windowMinNanos = Math.min(windowMinNanos, latencyNanos);
+			// until the first window ends its minimum so far is the baseline
+			double baseline = Double.isNaN(baselineNanos) ? windowMinNanos : baselineNanos;
+			if (latencyNanos <= baseline * tolerance) {
+				limit = Math.min(maxLimit, limit + 1 / limit);
+			} else if (!shrunk) {
+				limit = Math.max(minLimit, limit * 0.9);
+				shrunk = true;
+			}
+
+			if (++windowSamples == WINDOW) {
+				baselineNanos = Double.isNaN(baselineNanos) ? windowMinNanos
+						: baselineNanos * (1 - SMOOTHING) + windowMinNanos * SMOOTHING;
+				windowSamples = 0;
+				windowMinNanos = Long.MAX_VALUE;
+				shrunk = false;
+			}
+		}
+	}
+
+	public int getLimit() {
+		return (int) limit;
+	}
+
+	public int getInFlight() {
+		return inFlight.get();
+	}
+
+}
@@ -0,0 +1,54 @@
+package br.com.project.libraryapi.api.limit;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Sheds the GET requests above the limit of an
+ * {@link AdaptiveConcurrencyLimiter} with an immediate 503, instead of queuing
+ * them behind the slow ones. Writes to the same paths are never shed and do
+ * not count towards the limit.
+ */
+public class ConcurrencyLimitInterceptor implements HandlerInterceptor {
+
+	private static final String STARTED_AT = ConcurrencyLimitInterceptor.class.getName() + ".startedAt";
+
+	private final AdaptiveConcurrencyLimiter limiter;
+	private final RejectionWriter rejections;
+
+	public ConcurrencyLimitInterceptor(AdaptiveConcurrencyLimiter limiter, ObjectMapper objectMapper) {
+		this.limiter = limiter;
+		this.rejections = new RejectionWriter(objectMapper);
+	}
+
+	@Override
+	public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler)
+			throws Exception {
+		if (!HttpMethod.GET.matches(request.getMethod())) {
+			return true;
+		}
+		if (!limiter.tryAcquire()) {
+			rejections.reject(response, HttpStatus.SERVICE_UNAVAILABLE, 1, "Server is busy, try again later.");
+			return false;
+		}
+		request.setAttribute(STARTED_AT, System.nanoTime());
+		return true;
+	}
+
+	@Override
+	public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+			Exception ex) {
+		Object startedAt = request.getAttribute(STARTED_AT);
+		if (startedAt != null) {
+			request.removeAttribute(STARTED_AT);
+			limiter.release(System.nanoTime() - (Long) startedAt);
+		}
+	}
+
+}
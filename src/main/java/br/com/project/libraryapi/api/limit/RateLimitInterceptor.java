@@ -0,0 +1,67 @@
+package br.com.project.libraryapi.api.limit;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Gives every client, identified by its remote address, a token bucket, and
+ * answers 429 at once when the bucket is empty. Behind a proxy the remote
+ * address must come from the forwarded headers, see
+ * {@code server.forward-headers-strategy}.
+ */
+public class RateLimitInterceptor implements HandlerInterceptor {
+
+	static final int MAX_TRACKED_CLIENTS = 10000;
+
+	private final Map<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+	private final double permitsPerSecond;
+	private final double burst;
+	private final RejectionWriter rejections;
+
+	public RateLimitInterceptor(double permitsPerSecond, double burst, ObjectMapper objectMapper) {
+		this.permitsPerSecond = permitsPerSecond;
+		this.burst = burst;
+		this.rejections = new RejectionWriter(objectMapper);
+	}
+
+	@Override
+	public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler)
+			throws Exception {
+		long now = System.nanoTime();
+		if (buckets.size() >= MAX_TRACKED_CLIENTS) {
+			evictIdle(now);
+		}
+
+		long waitNanos = buckets
+				.computeIfAbsent(request.getRemoteAddr(), client -> new TokenBucket(permitsPerSecond, burst, now))
+				.tryAcquire(now);
+		if (waitNanos == 0) {
+			return true;
+		}
+		rejections.reject(response, HttpStatus.TOO_MANY_REQUESTS,
+				Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + 999_999_999)), "Too many requests.");
+		return false;
+	}
+
+	/*
+	 * A full bucket is the same as a new one, so it can be dropped.
+	 */
+	private void evictIdle(long now) {
+		for (Iterator<TokenBucket> iterator = buckets.values().iterator(); iterator.hasNext();) {
+			if (iterator.next().isFull(now)) {
+				iterator.remove();
+			}
+		}
+	}
+
+}
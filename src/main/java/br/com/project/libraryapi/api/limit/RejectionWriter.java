@@ -0,0 +1,31 @@
+package br.com.project.libraryapi.api.limit;
+
+import java.io.IOException;
+
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import br.com.project.libraryapi.api.exception.ApiErrors;
+
+class RejectionWriter {
+
+	private final ObjectMapper objectMapper;
+
+	RejectionWriter(ObjectMapper objectMapper) {
+		this.objectMapper = objectMapper;
+	}
+
+	void reject(HttpServletResponse response, HttpStatus status, long retryAfterSeconds, String error)
+			throws IOException {
+		response.setStatus(status.value());
+		response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+		response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+		objectMapper.writeValue(response.getOutputStream(), new ApiErrors(error));
+	}
+
+}
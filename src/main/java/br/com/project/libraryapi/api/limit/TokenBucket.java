@@ -0,0 +1,43 @@
+package br.com.project.libraryapi.api.limit;
+
+/**
+ * Holds up to {@code burst} tokens, refilled continuously at
+ * {@code permitsPerSecond}. Each request takes one token.
+ */
+class TokenBucket {
+
+	private final double burst;
+	private final double tokensPerNano;
+	private double tokens;
+	private long refilledAt;
+
+	TokenBucket(double permitsPerSecond, double burst, long now) {
+		this.burst = burst;
+		this.tokensPerNano = permitsPerSecond / 1_000_000_000d;
+		this.tokens = burst;
+		this.refilledAt = now;
+	}
+
+	/**
+	 * Takes a token, or returns how many nanoseconds until one is available.
+	 */
+	synchronized long tryAcquire(long now) {
+		refill(now);
+		if (tokens >= 1) {
+			tokens -= 1;
+			return 0;
+		}
+		return (long) Math.ceil((1 - tokens) / tokensPerNano);
+	}
+
+	synchronized boolean isFull(long now) {
+		refill(now);
+		return tokens >= burst;
+	}
+
+	private void refill(long now) {
+		tokens = Math.min(burst, tokens + (now - refilledAt) * tokensPerNano);
+		refilledAt = now;
+	}
+
+}
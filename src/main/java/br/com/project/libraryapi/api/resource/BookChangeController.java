@@ -0,0 +1,306 @@
+package br.com.project.libraryapi.api.resource;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import br.com.project.libraryapi.api.dto.BookChangeDto;
+import br.com.project.libraryapi.api.dto.BookChangesDto;
+import br.com.project.libraryapi.exception.BookChangesPurgedException;
+import br.com.project.libraryapi.model.entity.BookChange;
+import br.com.project.libraryapi.service.BookChangesCommitted;
+import br.com.project.libraryapi.service.BookService;
+
+/**
+ * Feed of the book creations, updates and deletions, so consumers follow the
+ * catalog by reading only what changed since the last change they saw. The
+ * changes are read in pages, or streamed as server-sent events that resume
+ * after the Last-Event-ID of a reconnection.
+ */
+@RestController
+@RequestMapping("/api/books/changes")
+public class BookChangeController implements DisposableBean {
+
+	private static final Logger log = LoggerFactory.getLogger(BookChangeController.class);
+
+	static final long STREAM_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(30);
+	static final long HEARTBEAT_SECONDS = 15;
+	static final int STREAM_PAGE_SIZE = 500;
+	/* changes waiting to be sent to a subscriber, which is dropped once they overflow */
+	static final int STREAM_BUFFER_SIZE = 2 * STREAM_PAGE_SIZE;
+
+	private BookService service;
+
+	private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+	/* reads the new changes once for all the subscribers that caught up */
+	private final ScheduledExecutorService reader;
+	/* sends to each subscriber on its own, so a slow client only holds back itself */
+	private final ExecutorService senders;
+	private final AtomicBoolean readPending = new AtomicBoolean();
+	/* last change read for the subscribers that caught up, -1 until one did */
+	private final AtomicLong lastRead = new AtomicLong(-1);
+
+	public BookChangeController(BookService service) {
+		this.service = service;
+		this.reader = Executors.newSingleThreadScheduledExecutor(task -> new Thread(task, "book-change-read"));
+		this.senders = Executors.newCachedThreadPool(task -> new Thread(task, "book-change-stream"));
+		// also picks up the changes committed by other instances
+		reader.scheduleWithFixedDelay(this::heartbeat, HEARTBEAT_SECONDS, HEARTBEAT_SECONDS, TimeUnit.SECONDS);
+	}
+
+	@GetMapping
+	public BookChangesDto changes(@RequestParam(defaultValue = "0") long since,
+			@RequestParam(defaultValue = "100") int size) {
+		List<BookChange> changes;
+		try {
+			changes = service.findChanges(since, size);
+		} catch (IllegalArgumentException e) {
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+		} catch (BookChangesPurgedException e) {
+			throw new ResponseStatusException(HttpStatus.GONE, e.getMessage());
+		}
+
+		List<BookChangeDto> dtos = new ArrayList<>(changes.size());
+		changes.forEach(change -> dtos.add(toDto(change)));
+		return new BookChangesDto(dtos, changes.isEmpty() ? since : changes.get(changes.size() - 1).getId());
+	}
+
+	@GetMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+	public SseEmitter stream(@RequestParam(defaultValue = "0") long since,
+			@RequestHeader(name = "Last-Event-ID", required = false) Long lastEventId) {
+		long after = lastEventId != null ? lastEventId : since;
+		try {
+			service.findChanges(after, 1);
+		} catch (BookChangesPurgedException e) {
+			throw new ResponseStatusException(HttpStatus.GONE, e.getMessage());
+		}
+
+		SseEmitter emitter = new SseEmitter(STREAM_TIMEOUT_MILLIS);
+		Subscriber subscriber = new Subscriber(emitter, after);
+		emitter.onCompletion(() -> remove(subscriber));
+		emitter.onTimeout(() -> remove(subscriber));
+		emitter.onError(error -> remove(subscriber));
+		subscribers.add(subscriber);
+		try {
+			senders.execute(() -> catchUp(subscriber));
+		} catch (RejectedExecutionException e) {
+			remove(subscriber);
+			throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE);
+		}
+		return emitter;
+	}
+
+	/*
+	 * Commits in a row are read in one go, as the read takes all the changes
+	 * after the last one read.
+	 */
+	@EventListener
+	public void onChangesCommitted(BookChangesCommitted event) {
+		if (!subscribers.isEmpty() && readPending.compareAndSet(false, true)) {
+			try {
+				reader.execute(() -> {
+					readPending.set(false);
+					read();
+				});
+			} catch (RejectedExecutionException e) {
+				readPending.set(false);
+			}
+		}
+	}
+
+	private void heartbeat() {
+		read();
+		for (Subscriber subscriber : subscribers) {
+			if (subscriber.live) {
+				subscriber.heartbeatDue = true;
+				schedule(subscriber);
+			}
+		}
+	}
+
+	/**
+	 * Reads the changes after the last one read, a page at a time, and hands
+	 * every page to each subscriber that caught up.
+	 */
+	private void read() {
+		long after = lastRead.get();
+		if (after < 0) {
+			return;
+		}
+		try {
+			List<BookChange> changes;
+			do {
+				changes = service.findChanges(after, STREAM_PAGE_SIZE);
+				for (Subscriber subscriber : subscribers) {
+					if (subscriber.live) {
+						offer(subscriber, changes);
+					}
+				}
+				if (!changes.isEmpty()) {
+					after = changes.get(changes.size() - 1).getId();
+					lastRead.set(after);
+				}
+			} while (changes.size() == STREAM_PAGE_SIZE);
+		} catch (RuntimeException e) {
+			log.error("Could not read the book changes after {}", after, e);
+		}
+	}
+
+	private void offer(Subscriber subscriber, List<BookChange> changes) {
+		for (BookChange change : changes) {
+			if (change.getId() > subscriber.lastId && !subscriber.buffer.offer(change)) {
+				subscriber.overflowed = true;
+				break;
+			}
+		}
+		schedule(subscriber);
+	}
+
+	/*
+	 * The subscriber reads the log on its own until it reaches the end, and
+	 * only then takes the pages read for everyone. It reads once more after
+	 * that, for the changes committed in between, whose copies in its buffer
+	 * are skipped.
+	 */
+	private void catchUp(Subscriber subscriber) {
+		try {
+			sendAfter(subscriber);
+			subscriber.live = true;
+			lastRead.compareAndSet(-1, subscriber.lastId);
+			sendAfter(subscriber);
+		} catch (IOException | IllegalStateException e) {
+			remove(subscriber);
+			return;
+		} catch (RuntimeException e) {
+			log.error("Could not read the book changes after {}", subscriber.lastId, e);
+			subscriber.emitter.completeWithError(e);
+			return;
+		}
+		subscriber.sending.set(false);
+		if (!subscriber.buffer.isEmpty() || subscriber.overflowed) {
+			schedule(subscriber);
+		}
+	}
+
+	private void sendAfter(Subscriber subscriber) throws IOException {
+		List<BookChange> changes;
+		do {
+			changes = service.findChanges(subscriber.lastId, STREAM_PAGE_SIZE);
+			for (BookChange change : changes) {
+				send(subscriber, change);
+			}
+		} while (changes.size() == STREAM_PAGE_SIZE);
+	}
+
+	private void schedule(Subscriber subscriber) {
+		if (subscriber.sending.compareAndSet(false, true)) {
+			try {
+				senders.execute(() -> drain(subscriber));
+			} catch (RejectedExecutionException e) {
+				subscriber.sending.set(false);
+			}
+		}
+	}
+
+	/*
+	 * A subscriber whose buffer overflowed is completed, so it reconnects and
+	 * catches up from the log after its Last-Event-ID.
+	 */
+	private void drain(Subscriber subscriber) {
+		try {
+			do {
+				if (subscriber.overflowed) {
+					remove(subscriber);
+					subscriber.emitter.complete();
+					return;
+				}
+				BookChange change;
+				while ((change = subscriber.buffer.poll()) != null) {
+					if (change.getId() > subscriber.lastId) {
+						send(subscriber, change);
+					}
+				}
+				if (subscriber.heartbeatDue) {
+					subscriber.heartbeatDue = false;
+					subscriber.emitter.send(SseEmitter.event().comment("heartbeat"));
+				}
+				subscriber.sending.set(false);
+			} while ((!subscriber.buffer.isEmpty() || subscriber.overflowed || subscriber.heartbeatDue)
+					&& subscriber.sending.compareAndSet(false, true));
+		} catch (IOException | IllegalStateException e) {
+			remove(subscriber);
+		}
+	}
+
+	private static void send(Subscriber subscriber, BookChange change) throws IOException {
+		subscriber.emitter.send(SseEmitter.event()
+				.id(String.valueOf(change.getId()))
+				.name(change.getType().name())
+				.data(toDto(change), MediaType.APPLICATION_JSON));
+		subscriber.lastId = change.getId();
+	}
+
+	private void remove(Subscriber subscriber) {
+		subscribers.remove(subscriber);
+		if (subscribers.isEmpty()) {
+			lastRead.set(-1);
+		}
+	}
+
+	@Override
+	public void destroy() {
+		reader.shutdownNow();
+		senders.shutdownNow();
+		subscribers.forEach(subscriber -> subscriber.emitter.complete());
+	}
+
+	private static BookChangeDto toDto(BookChange change) {
+		return new BookChangeDto(change.getId(), change.getType().name(), change.getBookId(), change.getTitle(),
+				change.getAuthor(), change.getIsbn(), change.getVersion(), change.getChangedAt());
+	}
+
+	private static class Subscriber {
+
+		private final SseEmitter emitter;
+		private final BlockingQueue<BookChange> buffer = new ArrayBlockingQueue<>(STREAM_BUFFER_SIZE);
+		/* held by the task sending to it, the first one being its catch-up */
+		private final AtomicBoolean sending = new AtomicBoolean(true);
+		private volatile boolean live;
+		private volatile boolean overflowed;
+		private volatile boolean heartbeatDue;
+		/* only written by the task sending to it */
+		private volatile long lastId;
+
+		Subscriber(SseEmitter emitter, long lastId) {
+			this.emitter = emitter;
+			this.lastId = lastId;
+		}
+
+	}
+
+}
@@ -1,59 +1,184 @@
 package br.com.project.libraryapi.api.resource;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.stream.Collectors;
 
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
 
-import org.modelmapper.ModelMapper;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.util.DigestUtils;
+import org.springframework.validation.BeanPropertyBindingResult;
+import org.springframework.validation.BindException;
 import org.springframework.validation.BindingResult;
-import org.springframework.web.bind.MethodArgumentNotValidException;
+import org.springframework.validation.FieldError;
+import org.springframework.validation.Validator;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.server.ResponseStatusException;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import br.com.project.libraryapi.api.dto.BookBatchItemDto;
 import br.com.project.libraryapi.api.dto.BookDto;
+import br.com.project.libraryapi.api.dto.BookLookupDto;
+import br.com.project.libraryapi.api.dto.BookPageDto;
+import br.com.project.libraryapi.api.dto.BookSliceDto;
 import br.com.project.libraryapi.api.exception.ApiErrors;
+import br.com.project.libraryapi.api.mapper.BookMapper;
 import br.com.project.libraryapi.exception.BusinessException;
 import br.com.project.libraryapi.model.entity.Book;
+import br.com.project.libraryapi.model.repository.BookView;
+import br.com.project.libraryapi.service.BookCountMode;
+import br.com.project.libraryapi.service.BookCursor;
+import br.com.project.libraryapi.service.BookSaveResult;
 import br.com.project.libraryapi.service.BookService;
 
 @RestController
 @RequestMapping("/api/books")
 public class BookController {
 
+	static final MediaType TEXT_CSV = MediaType.parseMediaType("text/csv");
+	static final String PAGE_JSON_VALUE = "application/vnd.library.page+json";
+	static final String SMILE_VALUE = "application/x-jackson-smile";
+	/* in the order the compact representations are preferred when accepted alike */
+	static final List<MediaType> COMPACT_TYPES = Arrays.asList(MediaType.parseMediaType(PAGE_JSON_VALUE),
+			MediaType.parseMediaType(SMILE_VALUE), MediaType.APPLICATION_CBOR);
+	static final String TOTAL_PRECISION = "X-Total-Precision";
+
 	private BookService service;
-	private ModelMapper modelMapper;
+	private BookMapper mapper;
+	private ObjectMapper objectMapper;
+	private Validator validator;
 
-	public BookController(BookService service, ModelMapper mapper) {
+	public BookController(BookService service, BookMapper mapper, ObjectMapper objectMapper,
+			@Qualifier("mvcValidator") Validator validator) {
 		this.service = service;
-		this.modelMapper = mapper;
+		this.mapper = mapper;
+		this.objectMapper = objectMapper;
+		this.validator = validator;
 	}
 
 	@PostMapping
 	@ResponseStatus(HttpStatus.CREATED)
 	public BookDto create(@RequestBody @Valid BookDto dto) {
-		Book entity = modelMapper.map(dto, Book.class);
+		Book entity = mapper.toEntity(dto);
 		entity = service.save(entity);
-		return modelMapper.map(entity, BookDto.class);
+		return mapper.toDto(entity);
+	}
+
+	/**
+	 * Items are checked with the constraints of a single creation, and the
+	 * invalid ones are reported as rejected without reaching the service.
+	 */
+	@PostMapping("/batch")
+	public List<BookBatchItemDto> createAll(@RequestBody List<BookDto> dtos) {
+		BookBatchItemDto[] items = new BookBatchItemDto[dtos.size()];
+		List<Book> entities = new ArrayList<>(dtos.size());
+		List<Integer> positions = new ArrayList<>(dtos.size());
+		for (int i = 0; i < dtos.size(); i++) {
+			BookDto dto = dtos.get(i);
+			BindingResult errors = new BeanPropertyBindingResult(dto, "book");
+			validator.validate(dto, errors);
+			if (!errors.hasErrors()) {
+				entities.add(new Book(dto.getTitle(), dto.getAuthor(), dto.getIsbn()));
+				positions.add(i);
+			} else {
+				items[i] = new BookBatchItemDto(null, dto.getIsbn(), BookBatchItemDto.REJECTED, describe(errors));
+			}
+		}
+
+		if (!entities.isEmpty()) {
+			List<BookSaveResult> results = service.saveAll(entities);
+			for (int i = 0; i < results.size(); i++) {
+				items[positions.get(i)] = toBatchItem(results.get(i));
+			}
+		}
+		return Arrays.asList(items);
+	}
+
+	/*
+	 * Absent fields are left unchanged, so only the errors of the present ones
+	 * count.
+	 */
+	private void validatePresent(BookDto dto) throws BindException {
+		BindingResult errors = new BeanPropertyBindingResult(dto, "book");
+		validator.validate(dto, errors);
+		BindingResult present = new BeanPropertyBindingResult(dto, "book");
+		for (FieldError error : errors.getFieldErrors()) {
+			if (error.getRejectedValue() != null) {
+				present.addError(error);
+			}
+		}
+		if (present.hasErrors()) {
+			throw new BindException(present);
+		}
+	}
+
+	private static String describe(BindingResult errors) {
+		return errors.getFieldErrors().stream()
+				.map(error -> error.getField() + " " + error.getDefaultMessage())
+				.sorted()
+				.collect(Collectors.joining(", "));
 	}
 
 	@GetMapping("/{id}")
-	public BookDto get(@PathVariable Long id) {
-		return service.getById(id).map(book -> modelMapper.map(book, BookDto.class))
-				.orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+	public BookDto get(@PathVariable Long id, WebRequest request) {
+		Book book = service.getById(id).orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+		long lastModified = book.getUpdatedAt() == null ? -1 : book.getUpdatedAt().toEpochMilli();
+		if (request.checkNotModified(etag(book), lastModified)) {
+			return null;
+		}
+		return mapper.toDto(book);
+	}
+
+	@PostMapping("/lookup")
+	public BookLookupDto lookup(@RequestBody List<Long> ids) {
+		Map<Long, Book> books;
+		try {
+			books = service.getByIds(ids);
+		} catch (IllegalArgumentException e) {
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+		}
+
+		List<Long> missing = ids.stream()
+				.filter(id -> id != null && !books.containsKey(id))
+				.distinct()
+				.collect(Collectors.toList());
+		return new BookLookupDto(mapper.toDtos(new ArrayList<>(books.values())), missing);
 	}
 
 	@DeleteMapping("/{id}")
@@ -65,32 +190,235 @@ public class BookController {
 	
 	@PutMapping("/{id}")
 	public BookDto put(@PathVariable Long id, @RequestBody @Valid BookDto dto) {
-		BookDto bookDto = service.getById(id).map(book -> modelMapper.map(book, BookDto.class))
-		.orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
-		
-		bookDto.setAuthor(dto.getAuthor());
-		bookDto.setTitle(dto.getTitle());
-		
-		Book entity = modelMapper.map(dto, Book.class);
-		entity = service.update(entity);
-		return modelMapper.map(entity, BookDto.class);
+		Book entity = mapper.toEntity(dto);
+		entity.setId(id);
+		return service.update(entity).map(mapper::toDto)
+				.orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
 	}
-	
+
+	/**
+	 * Changes the fields present in the body, each validated like on creation.
+	 */
+	@PatchMapping("/{id}")
+	public BookDto patch(@PathVariable Long id, @RequestBody BookDto dto) throws BindException {
+		validatePresent(dto);
+		Book changes = mapper.toEntity(dto);
+		changes.setId(id);
+		return service.updateFields(changes).map(mapper::toDto)
+				.orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+	}
+
+	/**
+	 * Books matching the filter. The {@code count} parameter chooses how the
+	 * total is counted, see {@link BookCountMode}, and the
+	 * {@value #TOTAL_PRECISION} header tells how precise it is.
+	 */
 	@GetMapping
-	public Page<BookDto> find(BookDto dto, Pageable pageRequest) {
-		Book filter = modelMapper.map(dto, Book.class);
-		Page<Book> result = service.find(filter, pageRequest);
-		
-		List<BookDto> list = result.getContent().stream()
-			.map( entity -> modelMapper.map(entity, BookDto.class))
-			.collect( Collectors.toList());
-		
-		return new PageImpl<>(list, pageRequest, result.getTotalElements());
-	}
-
-	@ExceptionHandler(MethodArgumentNotValidException.class)
+	public Page<BookView> find(BookDto dto, Pageable pageRequest,
+			@RequestParam(defaultValue = "exact") String count, WebRequest request, HttpServletResponse response) {
+		Book filter = mapper.toEntity(dto);
+		Page<BookView> result = find(filter, pageRequest, count, response);
+		vary(response);
+		if (request.checkNotModified(etag(result, "page"))) {
+			return null;
+		}
+		return result;
+	}
+
+	/**
+	 * The filter in the compact representations, asked for through the Accept
+	 * header: a slim page envelope, as json or in the Smile and CBOR binary
+	 * formats.
+	 */
+	@GetMapping(produces = { PAGE_JSON_VALUE, SMILE_VALUE, MediaType.APPLICATION_CBOR_VALUE })
+	public BookPageDto findCompact(BookDto dto, Pageable pageRequest,
+			@RequestParam(defaultValue = "exact") String count, @RequestHeader(HttpHeaders.ACCEPT) String accept,
+			WebRequest request, HttpServletResponse response) {
+		Book filter = mapper.toEntity(dto);
+		Page<BookView> result = find(filter, pageRequest, count, response);
+		vary(response);
+		if (request.checkNotModified(etag(result, compactType(accept).toString()))) {
+			return null;
+		}
+		return new BookPageDto(result.getContent(), result.getNumber(), result.getSize(), result.getTotalElements());
+	}
+
+	private Page<BookView> find(Book filter, Pageable pageRequest, String count, HttpServletResponse response) {
+		BookCountMode countMode;
+		try {
+			countMode = BookCountMode.valueOf(count.toUpperCase(Locale.ROOT));
+		} catch (IllegalArgumentException e) {
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unknown count mode " + count);
+		}
+
+		Page<BookView> result = service.find(filter, pageRequest, countMode);
+		if (countMode == BookCountMode.CACHED) {
+			response.setHeader(TOTAL_PRECISION, "estimated");
+		} else if (countMode == BookCountMode.CAPPED && BookCountMode.isLowerBound(result)) {
+			response.setHeader(TOTAL_PRECISION, "at-least");
+		} else {
+			response.setHeader(TOTAL_PRECISION, "exact");
+		}
+		return result;
+	}
+
+	@GetMapping("/search")
+	public Page<BookView> search(@RequestParam("q") String text, Pageable pageRequest, WebRequest request) {
+		Page<BookView> result;
+		try {
+			result = service.search(text, pageRequest);
+		} catch (IllegalArgumentException e) {
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+		}
+		if (request.checkNotModified(etag(result, "page"))) {
+			return null;
+		}
+		return result;
+	}
+
+	@GetMapping("/scroll")
+	public BookSliceDto scroll(BookDto dto, @RequestParam(required = false) String after, Pageable pageRequest) {
+		Book filter = mapper.toEntity(dto);
+		Slice<Book> result;
+		try {
+			BookCursor cursor = after == null ? null : BookCursor.decode(after);
+			result = service.findAfter(filter, cursor, pageRequest);
+		} catch (IllegalArgumentException e) {
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+		}
+
+		BookCursor next = BookCursor.next(result);
+		return new BookSliceDto(mapper.toDtos(result.getContent()), result.getSize(), result.hasNext(),
+				next == null ? null : next.encode());
+	}
+
+	/*
+	 * Validators are built from ids and versions only, so a matching
+	 * conditional request is answered before the books are serialized.
+	 */
+	private static String etag(Book book) {
+		return book.getVersion() == null ? null : "\"" + book.getVersion() + "\"";
+	}
+
+	/*
+	 * The body depends on the Accept header, and is compressed depending on
+	 * the Accept-Encoding one, so caches keep a copy of each.
+	 */
+	private static void vary(HttpServletResponse response) {
+		response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT + ", " + HttpHeaders.ACCEPT_ENCODING);
+	}
+
+	/*
+	 * The compact type the body is written in, picked like the message
+	 * converters do: the first of the accepted types, by specificity and
+	 * quality, that is compatible with one of the compact ones.
+	 */
+	private static MediaType compactType(String accept) {
+		List<MediaType> accepted = MediaType.parseMediaTypes(accept);
+		MediaType.sortBySpecificityAndQuality(accepted);
+		for (MediaType type : accepted) {
+			for (MediaType compact : COMPACT_TYPES) {
+				if (type.isCompatibleWith(compact)) {
+					return compact;
+				}
+			}
+		}
+		return COMPACT_TYPES.get(0);
+	}
+
+	private static String etag(Page<BookView> page, String representation) {
+		StringBuilder versions = new StringBuilder(representation).append(',').append(page.getTotalElements());
+		for (BookView book : page) {
+			versions.append(',').append(book.getId()).append(':').append(book.getVersion());
+		}
+		return "W/\"" + DigestUtils.md5DigestAsHex(versions.toString().getBytes(StandardCharsets.UTF_8)) + "\"";
+	}
+
+	private BookBatchItemDto toBatchItem(BookSaveResult result) {
+		Book book = result.getBook();
+		if (result.isSaved()) {
+			return new BookBatchItemDto(book.getId(), book.getIsbn(), BookBatchItemDto.CREATED, null);
+		}
+		return new BookBatchItemDto(null, book.getIsbn(), BookBatchItemDto.REJECTED, result.getError());
+	}
+
+	@GetMapping("/export")
+	public void export(@RequestParam(defaultValue = "ndjson") String format, HttpServletResponse response)
+			throws IOException {
+		boolean csv = "csv".equalsIgnoreCase(format);
+		if (!csv && !"ndjson".equalsIgnoreCase(format)) {
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unsupported export format: " + format);
+		}
+
+		response.setContentType((csv ? TEXT_CSV : MediaType.APPLICATION_NDJSON).toString());
+		response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+
+		Writer writer = new BufferedWriter(new OutputStreamWriter(response.getOutputStream(), StandardCharsets.UTF_8));
+		try {
+			if (csv) {
+				exportCsv(writer);
+			} else {
+				exportNdjson(writer);
+			}
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+		writer.flush();
+	}
+
+	private void exportNdjson(Writer writer) throws IOException {
+		ObjectWriter lineWriter = objectMapper.writer()
+				.without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+				.without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+				.withRootValueSeparator("\n");
+		boolean[] written = { false };
+		try (SequenceWriter lines = lineWriter.writeValues(writer)) {
+			service.export(book -> {
+				try {
+					lines.write(book);
+					written[0] = true;
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			});
+		}
+		// the separator only goes between lines, so the last one is ended here, unless there is none
+		if (written[0]) {
+			writer.write('\n');
+		}
+	}
+
+	private void exportCsv(Writer writer) throws IOException {
+		writer.write("id,title,author,isbn\n");
+		service.export(book -> {
+			try {
+				writer.write(String.valueOf(book.getId()));
+				writer.write(',');
+				writer.write(csvField(book.getTitle()));
+				writer.write(',');
+				writer.write(csvField(book.getAuthor()));
+				writer.write(',');
+				writer.write(csvField(book.getIsbn()));
+				writer.write('\n');
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		});
+	}
+
+	private static String csvField(String value) {
+		if (value == null) {
+			return "";
+		}
+		if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+			return value;
+		}
+		return '"' + value.replace("\"", "\"\"") + '"';
+	}
+
+	@ExceptionHandler(BindException.class)
 	@ResponseStatus(HttpStatus.BAD_REQUEST)
-	public ApiErrors handleValidationExceptios(MethodArgumentNotValidException exception) {
+	public ApiErrors handleValidationExceptios(BindException exception) {
 		BindingResult bindingResult = exception.getBindingResult();
 
 		return new ApiErrors(bindingResult);
@@ -103,4 +431,11 @@ public class BookController {
 		return new ApiErrors(exception);
 	}
 
+	@ExceptionHandler(OptimisticLockingFailureException.class)
+	@ResponseStatus(HttpStatus.CONFLICT)
+	public ApiErrors handleOptimisticLockingFailure(OptimisticLockingFailureException exception) {
+
+		return new ApiErrors("Book was changed by another request.");
+	}
+
 }
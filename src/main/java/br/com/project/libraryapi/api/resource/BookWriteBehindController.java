@@ -0,0 +1,93 @@
+package br.com.project.libraryapi.api.resource;
+
+import java.util.concurrent.RejectedExecutionException;
+
+import javax.validation.Valid;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import br.com.project.libraryapi.api.dto.BookDto;
+import br.com.project.libraryapi.api.dto.BookWriteDto;
+import br.com.project.libraryapi.api.exception.ApiErrors;
+import br.com.project.libraryapi.api.mapper.BookMapper;
+import br.com.project.libraryapi.model.entity.Book;
+import br.com.project.libraryapi.service.BookWriteStatus;
+import br.com.project.libraryapi.service.impl.BookWriteBehindQueue;
+
+/**
+ * Write-behind variants of the book mutations. They answer 202 with a ticket
+ * once the mutation is journaled, and the outcome is polled on
+ * {@code /api/books/async/operations/{ticket}}.
+ */
+@RestController
+@RequestMapping("/api/books/async")
+@ConditionalOnProperty(name = "library.write-behind.enabled", havingValue = "true")
+public class BookWriteBehindController {
+
+	static final String RETRY_AFTER_SECONDS = "1";
+
+	private BookWriteBehindQueue queue;
+	private BookMapper mapper;
+
+	public BookWriteBehindController(BookWriteBehindQueue queue, BookMapper mapper) {
+		this.queue = queue;
+		this.mapper = mapper;
+	}
+
+	@PostMapping
+	public ResponseEntity<BookWriteDto> create(@RequestBody @Valid BookDto dto) {
+		Book entity = mapper.toEntity(dto);
+		entity.setId(null);
+		return accepted(queue.create(entity));
+	}
+
+	@PutMapping("/{id}")
+	public ResponseEntity<BookWriteDto> put(@PathVariable Long id, @RequestBody @Valid BookDto dto) {
+		Book entity = mapper.toEntity(dto);
+		entity.setId(id);
+		return accepted(queue.update(entity));
+	}
+
+	@DeleteMapping("/{id}")
+	public ResponseEntity<BookWriteDto> delete(@PathVariable Long id) {
+		return accepted(queue.delete(id));
+	}
+
+	@GetMapping("/operations/{ticket}")
+	public BookWriteDto status(@PathVariable String ticket) {
+		return queue.status(ticket).map(BookWriteBehindController::toDto)
+				.orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+	}
+
+	private static ResponseEntity<BookWriteDto> accepted(BookWriteStatus status) {
+		return ResponseEntity.accepted()
+				.header(HttpHeaders.LOCATION, "/api/books/async/operations/" + status.getTicket())
+				.body(toDto(status));
+	}
+
+	private static BookWriteDto toDto(BookWriteStatus status) {
+		return new BookWriteDto(status.getTicket(), status.getState().name(), status.getBookId(), status.getError());
+	}
+
+	@ExceptionHandler(RejectedExecutionException.class)
+	public ResponseEntity<ApiErrors> handleQueueFull(RejectedExecutionException exception) {
+
+		return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+				.header(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS)
+				.body(new ApiErrors(exception.getMessage()));
+	}
+
+}
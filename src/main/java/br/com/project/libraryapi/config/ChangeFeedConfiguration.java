@@ -0,0 +1,23 @@
+package br.com.project.libraryapi.config;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import br.com.project.libraryapi.model.repository.BookChangeCounterRepository;
+import br.com.project.libraryapi.model.repository.BookChangeRepository;
+import br.com.project.libraryapi.service.impl.BookChangeLog;
+
+@Configuration
+@EnableConfigurationProperties(ChangeFeedProperties.class)
+public class ChangeFeedConfiguration {
+
+	@Bean(initMethod = "start", destroyMethod = "stop")
+	public BookChangeLog bookChangeLog(BookChangeRepository repository, BookChangeCounterRepository counters,
+			ApplicationEventPublisher publisher, ChangeFeedProperties properties) {
+		return new BookChangeLog(repository, counters, publisher, properties.getRetention(),
+				properties.getPurgeInterval());
+	}
+
+}
@@ -0,0 +1,37 @@
+package br.com.project.libraryapi.config;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties("library.changes")
+public class ChangeFeedProperties {
+
+	/**
+	 * How long book changes are kept. Consumers further behind have to reload
+	 * the books.
+	 */
+	private Duration retention = Duration.ofDays(7);
+
+	/**
+	 * Pause between purges of the changes older than the retention.
+	 */
+	private Duration purgeInterval = Duration.ofHours(1);
+
+	public Duration getRetention() {
+		return retention;
+	}
+
+	public void setRetention(Duration retention) {
+		this.retention = retention;
+	}
+
+	public Duration getPurgeInterval() {
+		return purgeInterval;
+	}
+
+	public void setPurgeInterval(Duration purgeInterval) {
+		this.purgeInterval = purgeInterval;
+	}
+
+}
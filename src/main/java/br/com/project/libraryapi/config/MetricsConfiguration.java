@@ -0,0 +1,30 @@
+package br.com.project.libraryapi.config;
+
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.MeterRegistry;
+
+@Configuration
+public class MetricsConfiguration {
+
+	/**
+	 * Records the methods annotated with {@code @Timed}, such as the
+	 * {@code book.service} timers of BookServiceImpl.
+	 */
+	@Bean
+	public TimedAspect timedAspect(MeterRegistry registry) {
+		return new TimedAspect(registry);
+	}
+
+	@Bean
+	public PersistenceEndpoint persistenceEndpoint(DataSource dataSource, EntityManagerFactory entityManagerFactory,
+			MeterRegistry registry) {
+		return new PersistenceEndpoint(dataSource, entityManagerFactory, registry);
+	}
+
+}
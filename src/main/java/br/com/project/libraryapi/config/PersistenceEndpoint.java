@@ -0,0 +1,124 @@
+package br.com.project.libraryapi.config;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.jdbc.DataSourceUnwrapper;
+
+import com.zaxxer.hikari.HikariConfigMXBean;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * {@code /actuator/persistence}: the state of each connection pool, the primary
+ * and every read replica, how long requests wait for a connection, and how
+ * often Hibernate finds the statements it runs already parsed in its query plan
+ * cache.
+ */
+@Endpoint(id = "persistence")
+public class PersistenceEndpoint {
+
+	private final DataSource dataSource;
+	private final EntityManagerFactory entityManagerFactory;
+	private final MeterRegistry registry;
+
+	public PersistenceEndpoint(DataSource dataSource, EntityManagerFactory entityManagerFactory,
+			MeterRegistry registry) {
+		this.dataSource = dataSource;
+		this.entityManagerFactory = entityManagerFactory;
+		this.registry = registry;
+	}
+
+	@ReadOperation
+	public Map<String, Object> persistence() {
+		Map<String, Object> persistence = new LinkedHashMap<>();
+		persistence.put("pools", pools());
+		persistence.put("statements", statements());
+		return persistence;
+	}
+
+	/*
+	 * Keyed by pool name. A pool without a name is keyed by its role, primary
+	 * or replica-n.
+	 */
+	private Map<String, Object> pools() {
+		ReplicaRoutingDataSource routing = DataSourceUnwrapper.unwrap(dataSource, ReplicaRoutingDataSource.class);
+		List<DataSource> dataSources = routing != null ? routing.getDataSources()
+				: Collections.singletonList(dataSource);
+		Map<String, Object> pools = new LinkedHashMap<>();
+		for (int i = 0; i < dataSources.size(); i++) {
+			String role = i == 0 ? ReplicaRoutingDataSource.PRIMARY : "replica-" + i;
+			HikariDataSource hikari = DataSourceUnwrapper.unwrap(dataSources.get(i), HikariConfigMXBean.class,
+					HikariDataSource.class);
+			String name = hikari != null && hikari.getPoolName() != null ? hikari.getPoolName() : role;
+			pools.put(name, pool(dataSources.get(i), hikari, role));
+		}
+		return pools;
+	}
+
+	private Map<String, Object> pool(DataSource dataSource, HikariDataSource hikari, String role) {
+		Map<String, Object> pool = new LinkedHashMap<>();
+		pool.put("role", role);
+		if (hikari == null) {
+			pool.put("type", dataSource.getClass().getName());
+			return pool;
+		}
+
+		pool.put("name", hikari.getPoolName());
+		pool.put("maximumPoolSize", hikari.getMaximumPoolSize());
+		pool.put("minimumIdle", hikari.getMinimumIdle());
+		pool.put("connectionTimeoutMillis", hikari.getConnectionTimeout());
+		HikariPoolMXBean connections = hikari.getHikariPoolMXBean();
+		if (connections != null) {
+			pool.put("active", connections.getActiveConnections());
+			pool.put("idle", connections.getIdleConnections());
+			pool.put("total", connections.getTotalConnections());
+			pool.put("threadsAwaitingConnection", connections.getThreadsAwaitingConnection());
+		}
+
+		Timer acquire = registry.find("hikaricp.connections.acquire").tag("pool", hikari.getPoolName()).timer();
+		if (acquire != null) {
+			Map<String, Object> wait = new LinkedHashMap<>();
+			wait.put("count", acquire.count());
+			wait.put("meanMillis", acquire.mean(TimeUnit.MILLISECONDS));
+			wait.put("maxMillis", acquire.max(TimeUnit.MILLISECONDS));
+			pool.put("wait", wait);
+		}
+		Counter timeouts = registry.find("hikaricp.connections.timeout").tag("pool", hikari.getPoolName()).counter();
+		if (timeouts != null) {
+			pool.put("timeouts", (long) timeouts.count());
+		}
+		return pool;
+	}
+
+	private Map<String, Object> statements() {
+		Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		Map<String, Object> statements = new LinkedHashMap<>();
+		statements.put("statisticsEnabled", statistics.isStatisticsEnabled());
+		long hits = statistics.getQueryPlanCacheHitCount();
+		long misses = statistics.getQueryPlanCacheMissCount();
+		statements.put("queryPlanCacheHits", hits);
+		statements.put("queryPlanCacheMisses", misses);
+		statements.put("queryPlanCacheHitRate", hits + misses == 0 ? 0 : (double) hits / (hits + misses));
+		statements.put("prepared", statistics.getPrepareStatementCount());
+		statements.put("queryExecutions", statistics.getQueryExecutionCount());
+		statements.put("slowestQueryMillis", statistics.getQueryExecutionMaxTime());
+		statements.put("slowestQuery", statistics.getQueryExecutionMaxTimeQueryString());
+		return statements;
+	}
+
+}
@@ -0,0 +1,73 @@
+package br.com.project.libraryapi.config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.Ordered;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+/**
+ * Replaces the single data source with a primary and the replicas listed
+ * under {@code library.datasource.replicas}. Without replicas the application
+ * keeps the data source configured by Spring Boot.
+ */
+@Configuration
+@ConditionalOnProperty("library.datasource.replicas[0].url")
+@EnableConfigurationProperties(ReadReplicaProperties.class)
+public class ReadReplicaConfiguration {
+
+	/*
+	 * Every pool takes the spring.datasource.hikari settings, under its own
+	 * pool name.
+	 */
+	@Bean
+	public ReplicaRoutingDataSource replicaRoutingDataSource(DataSourceProperties primaryProperties,
+			ReadReplicaProperties replicaProperties, Environment environment) {
+		Binder binder = Binder.get(environment);
+		HikariDataSource primary = hikari(primaryProperties, binder);
+		List<DataSource> replicas = new ArrayList<>();
+		for (DataSourceProperties properties : replicaProperties.getReplicas()) {
+			HikariDataSource replica = hikari(properties, binder);
+			if (primary.getPoolName() != null) {
+				replica.setPoolName(primary.getPoolName() + "-replica-" + (replicas.size() + 1));
+			}
+			replicas.add(replica);
+		}
+		return new ReplicaRoutingDataSource(primary, replicas);
+	}
+
+	@Bean
+	@Primary
+	public DataSource dataSource(ReplicaRoutingDataSource routingDataSource) {
+		return new LazyConnectionDataSourceProxy(routingDataSource);
+	}
+
+	@Bean
+	public FilterRegistrationBean<ReadYourWritesFilter> readYourWritesFilter(ReadReplicaProperties properties) {
+		FilterRegistrationBean<ReadYourWritesFilter> registration = new FilterRegistrationBean<>(
+				new ReadYourWritesFilter(properties.getLagWindow()));
+		registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+		return registration;
+	}
+
+	private static HikariDataSource hikari(DataSourceProperties properties, Binder binder) {
+		HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+		binder.bind("spring.datasource.hikari", Bindable.ofInstance(dataSource));
+		return dataSource;
+	}
+
+}
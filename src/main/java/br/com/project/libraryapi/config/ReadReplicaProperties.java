@@ -0,0 +1,41 @@
+package br.com.project.libraryapi.config;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties("library.datasource")
+public class ReadReplicaProperties {
+
+	/**
+	 * Connection settings of each replica, in the same format as
+	 * {@code spring.datasource}.
+	 */
+	private List<DataSourceProperties> replicas = new ArrayList<>();
+
+	/**
+	 * How long a client reads from the primary after one of its writes, so it
+	 * does not miss a change the replicas have not applied yet.
+	 */
+	private Duration lagWindow = Duration.ofSeconds(5);
+
+	public List<DataSourceProperties> getReplicas() {
+		return replicas;
+	}
+
+	public void setReplicas(List<DataSourceProperties> replicas) {
+		this.replicas = replicas;
+	}
+
+	public Duration getLagWindow() {
+		return lagWindow;
+	}
+
+	public void setLagWindow(Duration lagWindow) {
+		this.lagWindow = lagWindow;
+	}
+
+}
@@ -0,0 +1,99 @@
+package br.com.project.libraryapi.config;
+
+import java.io.IOException;
+import java.time.Duration;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.WebUtils;
+
+/**
+ * Keeps the reads of a client on the primary for the lag window after one of
+ * its writes. The deadline travels in a cookie set by the writing request, and
+ * is held for the current request in a thread local read by
+ * {@link ReplicaRoutingDataSource}.
+ */
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+
+	static final String COOKIE = "LIBRARY_PRIMARY_UNTIL";
+
+	private static final ThreadLocal<RequestState> CURRENT = new ThreadLocal<>();
+
+	private final Duration lagWindow;
+
+	public ReadYourWritesFilter(Duration lagWindow) {
+		this.lagWindow = lagWindow;
+	}
+
+	@Override
+	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+			throws ServletException, IOException {
+		CURRENT.set(new RequestState(response, lagWindow, primaryUntil(request) > System.currentTimeMillis()));
+		try {
+			chain.doFilter(request, response);
+		} finally {
+			CURRENT.remove();
+		}
+	}
+
+	private static long primaryUntil(HttpServletRequest request) {
+		Cookie cookie = WebUtils.getCookie(request, COOKIE);
+		if (cookie == null) {
+			return 0;
+		}
+		try {
+			return Long.parseLong(cookie.getValue());
+		} catch (NumberFormatException e) {
+			return 0;
+		}
+	}
+
+	static boolean isPinnedToPrimary() {
+		RequestState state = CURRENT.get();
+		return state != null && state.pinned;
+	}
+
+	/*
+	 * Called when a read-write transaction takes a connection. Later reads of
+	 * the same request stay on the primary, and so do the ones of the next
+	 * requests carrying the cookie, which is added while the response can
+	 * still take headers.
+	 */
+	static void written() {
+		RequestState state = CURRENT.get();
+		if (state == null || state.written) {
+			return;
+		}
+		state.written = true;
+		state.pinned = true;
+		if (!state.response.isCommitted()) {
+			long until = System.currentTimeMillis() + state.lagWindow.toMillis();
+			Cookie cookie = new Cookie(COOKIE, String.valueOf(until));
+			cookie.setPath("/");
+			cookie.setHttpOnly(true);
+			cookie.setMaxAge((int) Math.max(1, state.lagWindow.getSeconds()));
+			state.response.addCookie(cookie);
+		}
+	}
+
+	private static class RequestState {
+
+		private final HttpServletResponse response;
+		private final Duration lagWindow;
+		private boolean pinned;
+		private boolean written;
+
+		RequestState(HttpServletResponse response, Duration lagWindow, boolean pinned) {
+			this.response = response;
+			this.lagWindow = lagWindow;
+			this.pinned = pinned;
+		}
+
+	}
+
+}
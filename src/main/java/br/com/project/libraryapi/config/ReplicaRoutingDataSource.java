@@ -0,0 +1,75 @@
+package br.com.project.libraryapi.config;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Sends read-only transactions to the replicas in turn and everything else to
+ * the primary. Reads of a client that has just written stay on the primary,
+ * see {@link ReadYourWritesFilter}. It must be wrapped in a lazy connection
+ * proxy, so the connection is only chosen once the transaction is known to be
+ * read-only.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource implements DisposableBean {
+
+	static final String PRIMARY = "primary";
+
+	private final Map<Object, Object> targets = new HashMap<>();
+	private final int replicaCount;
+	private final AtomicInteger next = new AtomicInteger();
+
+	public ReplicaRoutingDataSource(DataSource primary, List<DataSource> replicas) {
+		targets.put(PRIMARY, primary);
+		for (int i = 0; i < replicas.size(); i++) {
+			targets.put(i, replicas.get(i));
+		}
+		setTargetDataSources(targets);
+		setDefaultTargetDataSource(primary);
+		this.replicaCount = replicas.size();
+	}
+
+	@Override
+	protected Object determineCurrentLookupKey() {
+		if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+			if (TransactionSynchronizationManager.isActualTransactionActive()) {
+				ReadYourWritesFilter.written();
+			}
+			return PRIMARY;
+		}
+		if (replicaCount == 0 || ReadYourWritesFilter.isPinnedToPrimary()) {
+			return PRIMARY;
+		}
+		return Math.floorMod(next.getAndIncrement(), replicaCount);
+	}
+
+	/**
+	 * The primary followed by the replicas in their configured order.
+	 */
+	public List<DataSource> getDataSources() {
+		List<DataSource> dataSources = new ArrayList<>();
+		dataSources.add((DataSource) targets.get(PRIMARY));
+		for (int i = 0; i < replicaCount; i++) {
+			dataSources.add((DataSource) targets.get(i));
+		}
+		return dataSources;
+	}
+
+	@Override
+	public void destroy() throws Exception {
+		for (Object target : targets.values()) {
+			if (target instanceof AutoCloseable) {
+				((AutoCloseable) target).close();
+			}
+		}
+	}
+
+}
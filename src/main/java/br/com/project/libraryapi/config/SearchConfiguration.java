@@ -0,0 +1,27 @@
+package br.com.project.libraryapi.config;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties(SearchProperties.class)
+public class SearchConfiguration {
+
+	@Bean
+	public SearchIndexEndpoint searchIndexEndpoint(EntityManagerFactory entityManagerFactory) {
+		return new SearchIndexEndpoint(entityManagerFactory);
+	}
+
+	@Bean
+	@ConditionalOnProperty(name = "library.search.reindex-on-start", havingValue = "true", matchIfMissing = true)
+	public ApplicationListener<ApplicationReadyEvent> searchReindexOnStart(SearchIndexEndpoint endpoint) {
+		return event -> endpoint.rebuild();
+	}
+
+}
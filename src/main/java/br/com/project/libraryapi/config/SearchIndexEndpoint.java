@@ -0,0 +1,90 @@
+package br.com.project.libraryapi.config;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.hibernate.search.mapper.orm.Search;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+
+import br.com.project.libraryapi.model.entity.Book;
+
+/**
+ * {@code /actuator/searchindex}: rebuilds the full-text index of books from
+ * the database, on a POST and when the application starts. The index is local
+ * to each instance and only follows the writes the instance makes itself, so
+ * a rebuild is the way to catch up with the database.
+ */
+@Endpoint(id = "searchindex")
+public class SearchIndexEndpoint {
+
+	private static final Logger log = LoggerFactory.getLogger(SearchIndexEndpoint.class);
+
+	private final EntityManagerFactory entityManagerFactory;
+
+	private CompletableFuture<?> rebuild = CompletableFuture.completedFuture(null);
+	private volatile Instant startedAt;
+	private volatile Instant finishedAt;
+	private volatile String error;
+
+	public SearchIndexEndpoint(EntityManagerFactory entityManagerFactory) {
+		this.entityManagerFactory = entityManagerFactory;
+	}
+
+	@ReadOperation
+	public Map<String, Object> state() {
+		Map<String, Object> state = new LinkedHashMap<>();
+		state.put("rebuilding", isRebuilding());
+		state.put("startedAt", startedAt);
+		state.put("finishedAt", finishedAt);
+		state.put("error", error);
+		return state;
+	}
+
+	@WriteOperation
+	public Map<String, Object> reindex() {
+		rebuild();
+		return state();
+	}
+
+	/**
+	 * Purges the index and indexes every book again in the background, unless
+	 * a rebuild is already running, which is returned instead. Searches see the
+	 * books indexed so far meanwhile.
+	 */
+	public synchronized CompletableFuture<?> rebuild() {
+		if (!rebuild.isDone()) {
+			return rebuild;
+		}
+		startedAt = Instant.now();
+		finishedAt = null;
+		error = null;
+		log.info("Rebuilding the book search index");
+		rebuild = Search.mapping(entityManagerFactory).scope(Book.class).massIndexer()
+				.start()
+				.toCompletableFuture()
+				.whenComplete((result, failure) -> {
+					finishedAt = Instant.now();
+					if (failure != null) {
+						error = failure.getMessage();
+						log.error("Could not rebuild the book search index", failure);
+					} else {
+						log.info("Rebuilt the book search index in {} ms",
+								finishedAt.toEpochMilli() - startedAt.toEpochMilli());
+					}
+				});
+		return rebuild;
+	}
+
+	private synchronized boolean isRebuilding() {
+		return !rebuild.isDone();
+	}
+
+}
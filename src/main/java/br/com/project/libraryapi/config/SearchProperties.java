@@ -0,0 +1,23 @@
+package br.com.project.libraryapi.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties("library.search")
+public class SearchProperties {
+
+	/**
+	 * Rebuilds the full-text index from the database once the application is
+	 * ready, so books written before the start, or by other instances, can be
+	 * found.
+	 */
+	private boolean reindexOnStart = true;
+
+	public boolean isReindexOnStart() {
+		return reindexOnStart;
+	}
+
+	public void setReindexOnStart(boolean reindexOnStart) {
+		this.reindexOnStart = reindexOnStart;
+	}
+
+}
@@ -0,0 +1,50 @@
+package br.com.project.libraryapi.config;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.EventListener;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+
+/**
+ * Records how long the instance took, from the JVM start, to be ready to serve
+ * requests, as the {@code library.startup.ready} gauge and a log line.
+ */
+@Configuration
+@EnableConfigurationProperties(StartupProperties.class)
+public class StartupConfiguration {
+
+	private static final Logger log = LoggerFactory.getLogger(StartupConfiguration.class);
+
+	private final StartupProperties properties;
+	private final ObjectProvider<MeterRegistry> registry;
+
+	public StartupConfiguration(StartupProperties properties, ObjectProvider<MeterRegistry> registry) {
+		this.properties = properties;
+		this.registry = registry;
+	}
+
+	@EventListener
+	public void onReady(ApplicationReadyEvent event) {
+		long readyMillis = ManagementFactory.getRuntimeMXBean().getUptime();
+		log.info("Ready to serve requests {} ms after the JVM start", readyMillis);
+		registry.ifAvailable(meters -> TimeGauge.builder("library.startup.ready", () -> readyMillis,
+				TimeUnit.MILLISECONDS)
+				.description("Time from the JVM start until the application was ready")
+				.register(meters));
+
+		if (properties.isExitOnReady()) {
+			System.exit(SpringApplication.exit(event.getApplicationContext()));
+		}
+	}
+
+}
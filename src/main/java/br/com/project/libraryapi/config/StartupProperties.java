@@ -0,0 +1,22 @@
+package br.com.project.libraryapi.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties("library.startup")
+public class StartupProperties {
+
+	/**
+	 * Closes the application as soon as it is ready, for the class data sharing
+	 * training run of the cds build profile.
+	 */
+	private boolean exitOnReady;
+
+	public boolean isExitOnReady() {
+		return exitOnReady;
+	}
+
+	public void setExitOnReady(boolean exitOnReady) {
+		this.exitOnReady = exitOnReady;
+	}
+
+}
@@ -0,0 +1,70 @@
+package br.com.project.libraryapi.config;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import br.com.project.libraryapi.api.limit.AdaptiveConcurrencyLimiter;
+import br.com.project.libraryapi.api.limit.ConcurrencyLimitInterceptor;
+import br.com.project.libraryapi.api.limit.RateLimitInterceptor;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Rate limits each client and sheds listing and search requests above an
+ * adaptive concurrency limit, and exports above a fixed one. Lookups by id
+ * and writes are only rate limited, so they stay fast while the expensive
+ * queries are shed.
+ */
+@Configuration
+@EnableConfigurationProperties(TrafficProperties.class)
+public class TrafficConfiguration implements WebMvcConfigurer {
+
+	private final TrafficProperties properties;
+	private final ObjectMapper objectMapper;
+	private final ObjectProvider<MeterRegistry> registry;
+
+	public TrafficConfiguration(TrafficProperties properties, ObjectMapper objectMapper,
+			ObjectProvider<MeterRegistry> registry) {
+		this.properties = properties;
+		this.objectMapper = objectMapper;
+		this.registry = registry;
+	}
+
+	@Override
+	public void addInterceptors(InterceptorRegistry interceptors) {
+		TrafficProperties.RateLimit rateLimit = properties.getRateLimit();
+		if (rateLimit.isEnabled()) {
+			interceptors.addInterceptor(new RateLimitInterceptor(rateLimit.getPermitsPerSecond(),
+					rateLimit.getBurst(), objectMapper)).addPathPatterns("/api/**");
+		}
+
+		TrafficProperties.Concurrency concurrency = properties.getConcurrency();
+		if (concurrency.isEnabled()) {
+			AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(concurrency.getInitialLimit(),
+					concurrency.getMinLimit(), concurrency.getMaxLimit(), concurrency.getLatencyTolerance());
+			registry.ifAvailable(meters -> {
+				Gauge.builder("library.traffic.concurrency.limit", limiter, AdaptiveConcurrencyLimiter::getLimit)
+						.description("Listing and search requests allowed to run at once")
+						.register(meters);
+				Gauge.builder("library.traffic.concurrency.in.flight", limiter,
+						AdaptiveConcurrencyLimiter::getInFlight)
+						.description("Listing and search requests running")
+						.register(meters);
+			});
+			interceptors.addInterceptor(new ConcurrencyLimitInterceptor(limiter, objectMapper))
+					.addPathPatterns("/api/books", "/api/books/search", "/api/books/scroll");
+
+			// a limiter whose bounds are equal keeps its limit whatever the latency
+			int exportLimit = concurrency.getExportLimit();
+			interceptors.addInterceptor(new ConcurrencyLimitInterceptor(new AdaptiveConcurrencyLimiter(exportLimit,
+					exportLimit, exportLimit, concurrency.getLatencyTolerance()), objectMapper))
+					.addPathPatterns("/api/books/export");
+		}
+	}
+
+}
@@ -0,0 +1,142 @@
+package br.com.project.libraryapi.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties("library.traffic")
+public class TrafficProperties {
+
+	private final RateLimit rateLimit = new RateLimit();
+
+	private final Concurrency concurrency = new Concurrency();
+
+	public RateLimit getRateLimit() {
+		return rateLimit;
+	}
+
+	public Concurrency getConcurrency() {
+		return concurrency;
+	}
+
+	public static class RateLimit {
+
+		/**
+		 * Limits the requests each client can make to /api/**. Clients are told
+		 * apart by their remote address, so behind a proxy it is only enabled
+		 * along with server.forward-headers-strategy, or every client would
+		 * share the bucket of the proxy.
+		 */
+		private boolean enabled = false;
+
+		/**
+		 * Sustained requests per second allowed to each client.
+		 */
+		private double permitsPerSecond = 100;
+
+		/**
+		 * Requests a client can make at once after being idle.
+		 */
+		private double burst = 200;
+
+		public boolean isEnabled() {
+			return enabled;
+		}
+
+		public void setEnabled(boolean enabled) {
+			this.enabled = enabled;
+		}
+
+		public double getPermitsPerSecond() {
+			return permitsPerSecond;
+		}
+
+		public void setPermitsPerSecond(double permitsPerSecond) {
+			this.permitsPerSecond = permitsPerSecond;
+		}
+
+		public double getBurst() {
+			return burst;
+		}
+
+		public void setBurst(double burst) {
+			this.burst = burst;
+		}
+
+	}
+
+	public static class Concurrency {
+
+		/**
+		 * Limits the listing and search requests running at once.
+		 */
+		private boolean enabled = true;
+
+		private int initialLimit = 20;
+
+		private int minLimit = 2;
+
+		private int maxLimit = 200;
+
+		/**
+		 * How many times slower than the baseline, the average of the fastest
+		 * request of the recent windows, a request may be before the limit
+		 * shrinks.
+		 */
+		private double latencyTolerance = 2.0;
+
+		/**
+		 * Exports running at once. Exports stream the whole catalog, so they
+		 * have a fixed limit of their own and do not shrink the adaptive one.
+		 */
+		private int exportLimit = 2;
+
+		public boolean isEnabled() {
+			return enabled;
+		}
+
+		public void setEnabled(boolean enabled) {
+			this.enabled = enabled;
+		}
+
+		public int getInitialLimit() {
+			return initialLimit;
+		}
+
+		public void setInitialLimit(int initialLimit) {
+			this.initialLimit = initialLimit;
+		}
+
+		public int getMinLimit() {
+			return minLimit;
+		}
+
+		public void setMinLimit(int minLimit) {
+			this.minLimit = minLimit;
+		}
+
+		public int getMaxLimit() {
+			return maxLimit;
+		}
+
+		public void setMaxLimit(int maxLimit) {
+			this.maxLimit = maxLimit;
+		}
+
+		public double getLatencyTolerance() {
+			return latencyTolerance;
+		}
+
+		public void setLatencyTolerance(double latencyTolerance) {
+			this.latencyTolerance = latencyTolerance;
+		}
+
+		public int getExportLimit() {
+			return exportLimit;
+		}
+
+		public void setExportLimit(int exportLimit) {
+			this.exportLimit = exportLimit;
+		}
+
+	}
+
+}
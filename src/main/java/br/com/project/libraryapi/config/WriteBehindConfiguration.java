@@ -0,0 +1,35 @@
+package br.com.project.libraryapi.config;
+
+import java.io.IOException;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import br.com.project.libraryapi.service.BookService;
+import br.com.project.libraryapi.service.impl.BookWriteBehindQueue;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+@Configuration
+@ConditionalOnProperty(name = "library.write-behind.enabled", havingValue = "true")
+@EnableConfigurationProperties(WriteBehindProperties.class)
+public class WriteBehindConfiguration {
+
+	@Bean(initMethod = "start", destroyMethod = "stop")
+	public BookWriteBehindQueue bookWriteBehindQueue(BookService service, PlatformTransactionManager transactionManager,
+			ObjectMapper objectMapper, WriteBehindProperties properties, ObjectProvider<MeterRegistry> registry)
+			throws IOException {
+		BookWriteBehindQueue queue = new BookWriteBehindQueue(service, transactionManager, objectMapper, properties);
+		registry.ifAvailable(meters -> Gauge.builder("book.write.behind.pending", queue, BookWriteBehindQueue::pending)
+				.description("Book mutations accepted and not yet written")
+				.register(meters));
+		return queue;
+	}
+
+}
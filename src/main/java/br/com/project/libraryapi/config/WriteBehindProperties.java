@@ -0,0 +1,93 @@
+package br.com.project.libraryapi.config;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties("library.write-behind")
+public class WriteBehindProperties {
+
+	/**
+	 * Accepts book mutations on /api/books/async and writes them in the
+	 * background.
+	 */
+	private boolean enabled;
+
+	/**
+	 * Most mutations waiting to be written, counting those coalesced into a
+	 * pending one. Further ones are refused until the queue drains.
+	 */
+	private int capacity = 10000;
+
+	/**
+	 * Most mutations written in one transaction.
+	 */
+	private int batchSize = 500;
+
+	/**
+	 * Pause between flushes while the queue holds less than a batch.
+	 */
+	private Duration flushInterval = Duration.ofMillis(200);
+
+	/**
+	 * File recording accepted mutations until they are written, replayed on
+	 * startup.
+	 */
+	private Path journal = Paths.get("data/write-behind.journal");
+
+	/**
+	 * Finished mutations whose status can still be polled.
+	 */
+	private int retainedResults = 10000;
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	public int getCapacity() {
+		return capacity;
+	}
+
+	public void setCapacity(int capacity) {
+		this.capacity = capacity;
+	}
+
+	public int getBatchSize() {
+		return batchSize;
+	}
+
+	public void setBatchSize(int batchSize) {
+		this.batchSize = batchSize;
+	}
+
+	public Duration getFlushInterval() {
+		return flushInterval;
+	}
+
+	public void setFlushInterval(Duration flushInterval) {
+		this.flushInterval = flushInterval;
+	}
+
+	public Path getJournal() {
+		return journal;
+	}
+
+	public void setJournal(Path journal) {
+		this.journal = journal;
+	}
+
+	public int getRetainedResults() {
+		return retainedResults;
+	}
+
+	public void setRetainedResults(int retainedResults) {
+		this.retainedResults = retainedResults;
+	}
+
+}
@@ -0,0 +1,23 @@
+package br.com.project.libraryapi.exception;
+
+/**
+ * The changes a consumer asked for were purged from the change log, so it has
+ * to reload the books and follow the changes from the last one.
+ */
+public class BookChangesPurgedException extends RuntimeException {
+
+	private static final long serialVersionUID = 1L;
+
+	private final long lastChangeId;
+
+	public BookChangesPurgedException(long after, long lastChangeId) {
+		super("The changes after " + after + " were purged, reload the books and follow the changes after "
+				+ lastChangeId);
+		this.lastChangeId = lastChangeId;
+	}
+
+	public long getLastChangeId() {
+		return lastChangeId;
+	}
+
+}
@@ -1,6 +1,6 @@
 package br.com.project.libraryapi.exception;
 
-public class BusinessException extends Throwable {
+public class BusinessException extends RuntimeException {
 	
 	/**
 	 * 
@@ -1,21 +1,56 @@
 package br.com.project.libraryapi.model.entity;
 
+import java.time.Instant;
+
+import javax.persistence.Cacheable;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
+import javax.persistence.Version;
+
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.DynamicUpdate;
+import org.hibernate.annotations.UpdateTimestamp;
+import org.hibernate.search.engine.backend.types.Projectable;
+import org.hibernate.search.mapper.pojo.mapping.definition.annotation.FullTextField;
+import org.hibernate.search.mapper.pojo.mapping.definition.annotation.GenericField;
+import org.hibernate.search.mapper.pojo.mapping.definition.annotation.Indexed;
+import org.hibernate.search.mapper.pojo.mapping.definition.annotation.KeywordField;
 
 @Entity
-@Table
+@Table(indexes = {
+		@Index(name = Book.ISBN_INDEX, columnList = "isbn", unique = true),
+		@Index(name = "ix_book_title", columnList = "title, id"),
+		@Index(name = "ix_book_author", columnList = "author, id") })
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+@DynamicUpdate
+@Indexed
 public class Book {
 
+	public static final String ISBN_INDEX = "ux_book_isbn";
+
 	@Id
-	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "book_seq")
+	@SequenceGenerator(name = "book_seq", sequenceName = "book_seq", allocationSize = 50)
+	@GenericField(projectable = Projectable.YES)
 	private Long id;
+	@FullTextField(projectable = Projectable.YES)
 	private String title;
+	@FullTextField(projectable = Projectable.YES)
 	private String author;
+	@KeywordField(projectable = Projectable.YES)
 	private String isbn;
+	@Version
+	@GenericField(projectable = Projectable.YES)
+	private Long version;
+	@UpdateTimestamp
+	private Instant updatedAt;
 
 	@Deprecated
 	public Book() {}
@@ -65,9 +100,26 @@ public class Book {
 		this.isbn = isbn;
 	}
 
+	public Long getVersion() {
+		return version;
+	}
+
+	public void setVersion(Long version) {
+		this.version = version;
+	}
+
+	public Instant getUpdatedAt() {
+		return updatedAt;
+	}
+
+	public void setUpdatedAt(Instant updatedAt) {
+		this.updatedAt = updatedAt;
+	}
+
 	@Override
 	public String toString() {
-		return "Book [id=" + id + ", title=" + title + ", author=" + author + ", isbn=" + isbn + "]";
+		return "Book [id=" + id + ", title=" + title + ", author=" + author + ", isbn=" + isbn + ", version="
+				+ version + ", updatedAt=" + updatedAt + "]";
 	}
 
 }
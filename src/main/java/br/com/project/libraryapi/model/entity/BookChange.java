@@ -0,0 +1,107 @@
+package br.com.project.libraryapi.model.entity;
+
+import java.time.Instant;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+
+import org.springframework.data.domain.Persistable;
+
+/**
+ * A creation, update or deletion of a book, with the state the book was left
+ * in, or had before a deletion. Changes are written in the transaction of the
+ * mutation, and get their ids as it commits, so the ids follow the commit
+ * order.
+ */
+@Entity
+@Table(indexes = @Index(name = "ix_book_change_changed_at", columnList = "changedAt"))
+public class BookChange implements Persistable<Long> {
+
+	public enum Type {
+		CREATE, UPDATE, DELETE
+	}
+
+	@Id
+	private Long id;
+	@Enumerated(EnumType.STRING)
+	@Column(nullable = false, length = 6)
+	private Type type;
+	@Column(nullable = false)
+	private Long bookId;
+	private String title;
+	private String author;
+	private String isbn;
+	private Long version;
+	@Column(nullable = false)
+	private Instant changedAt;
+
+	@Deprecated
+	public BookChange() {}
+
+	public BookChange(Type type, Book book) {
+		this.type = type;
+		this.bookId = book.getId();
+		this.title = book.getTitle();
+		this.author = book.getAuthor();
+		this.isbn = book.getIsbn();
+		this.version = book.getVersion();
+		this.changedAt = Instant.now();
+	}
+
+	@Override
+	public Long getId() {
+		return id;
+	}
+
+	public void setId(Long id) {
+		this.id = id;
+	}
+
+	/**
+	 * Changes are only ever inserted, so saving one never looks it up first.
+	 */
+	@Override
+	public boolean isNew() {
+		return true;
+	}
+
+	public Type getType() {
+		return type;
+	}
+
+	public Long getBookId() {
+		return bookId;
+	}
+
+	public String getTitle() {
+		return title;
+	}
+
+	public String getAuthor() {
+		return author;
+	}
+
+	public String getIsbn() {
+		return isbn;
+	}
+
+	public Long getVersion() {
+		return version;
+	}
+
+	public Instant getChangedAt() {
+		return changedAt;
+	}
+
+	@Override
+	public String toString() {
+		return "BookChange [id=" + id + ", type=" + type + ", bookId=" + bookId + ", version=" + version
+				+ ", changedAt=" + changedAt + "]";
+	}
+
+}
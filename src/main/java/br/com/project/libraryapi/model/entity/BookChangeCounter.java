@@ -0,0 +1,42 @@
+package br.com.project.libraryapi.model.entity;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+
+/**
+ * Id of the last book change appended to the log. A transaction appending
+ * changes locks its single row until it commits, so the ids of the changes
+ * follow the commit order.
+ */
+@Entity
+public class BookChangeCounter {
+
+	public static final long ID = 1;
+
+	@Id
+	private Long id;
+	@Column(nullable = false)
+	private Long lastChangeId;
+
+	@Deprecated
+	public BookChangeCounter() {}
+
+	public BookChangeCounter(Long id, Long lastChangeId) {
+		this.id = id;
+		this.lastChangeId = lastChangeId;
+	}
+
+	public Long getId() {
+		return id;
+	}
+
+	public Long getLastChangeId() {
+		return lastChangeId;
+	}
+
+	public void setLastChangeId(Long lastChangeId) {
+		this.lastChangeId = lastChangeId;
+	}
+
+}
@@ -0,0 +1,35 @@
+package br.com.project.libraryapi.model.repository;
+
+import java.util.Optional;
+
+import javax.persistence.LockModeType;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import br.com.project.libraryapi.model.entity.BookChangeCounter;
+
+public interface BookChangeCounterRepository extends JpaRepository<BookChangeCounter, Long> {
+
+	/*
+	 * Not read-only, so the counter is looked up on the primary database.
+	 */
+	@Override
+	@Transactional
+	boolean existsById(Long id);
+
+	@Override
+	@Transactional
+	Optional<BookChangeCounter> findById(Long id);
+
+	/**
+	 * Reads the counter and locks it until the current transaction ends.
+	 */
+	@Lock(LockModeType.PESSIMISTIC_WRITE)
+	@Query("select c from BookChangeCounter c where c.id = :id")
+	Optional<BookChangeCounter> lockById(@Param("id") Long id);
+
+}
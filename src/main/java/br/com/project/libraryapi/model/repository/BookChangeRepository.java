@@ -0,0 +1,35 @@
+package br.com.project.libraryapi.model.repository;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import br.com.project.libraryapi.model.entity.BookChange;
+
+public interface BookChangeRepository extends JpaRepository<BookChange, Long> {
+
+	/*
+	 * Not read-only, so the changes are read from the primary database, which
+	 * has every change committed so far, instead of a lagging replica.
+	 */
+	@Transactional
+	@Query("select c from BookChange c where c.id > :after order by c.id")
+	List<BookChange> findAfter(@Param("after") Long after, Pageable pageable);
+
+	@Transactional
+	@Query("select max(c.id) from BookChange c")
+	Optional<Long> findLastId();
+
+	@Transactional
+	@Modifying
+	@Query("delete from BookChange c where c.changedAt < :before")
+	int deleteChangedBefore(@Param("before") Instant before);
+
+}
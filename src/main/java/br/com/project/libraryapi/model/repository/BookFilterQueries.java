@@ -0,0 +1,120 @@
+package br.com.project.libraryapi.model.repository;
+
+import java.util.Arrays;
+import java.util.List;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Query;
+import javax.persistence.TypedQuery;
+
+import org.springframework.data.domain.Sort;
+
+import br.com.project.libraryapi.model.entity.Book;
+
+/**
+ * JPQL of the book filter for every combination of present properties, built
+ * once. The same filter shape always yields the same query string, so
+ * Hibernate parses it once and serves it from its query plan cache, instead of
+ * rendering a criteria query on every call.
+ */
+final class BookFilterQueries {
+
+	private static final List<String> SORTABLE_PROPERTIES = Arrays.asList("id", "title", "author", "isbn", "version");
+
+	private static final int ID = 1;
+	private static final int TITLE = 2;
+	private static final int AUTHOR = 4;
+	private static final int ISBN = 8;
+
+	private static final String[] SELECT = new String[16];
+	private static final String[] COUNT = new String[16];
+	private static final String[] IDS = new String[16];
+
+	static {
+		for (int shape = 0; shape < SELECT.length; shape++) {
+			String where = where(shape);
+			SELECT[shape] = "select new " + BookView.class.getName()
+					+ "(b.id, b.title, b.author, b.isbn, b.version) from Book b" + where;
+			COUNT[shape] = "select count(b) from Book b" + where;
+			IDS[shape] = "select b.id from Book b" + where;
+		}
+	}
+
+	private BookFilterQueries() {}
+
+	static TypedQuery<BookView> select(EntityManager entityManager, Book filter, Sort sort) {
+		String jpql = SELECT[shape(filter)];
+		if (sort.isSorted()) {
+			jpql += orderBy(sort);
+		}
+		return bind(entityManager.createQuery(jpql, BookView.class), filter);
+	}
+
+	static TypedQuery<Long> count(EntityManager entityManager, Book filter) {
+		return bind(entityManager.createQuery(COUNT[shape(filter)], Long.class), filter);
+	}
+
+	static TypedQuery<Long> ids(EntityManager entityManager, Book filter) {
+		return bind(entityManager.createQuery(IDS[shape(filter)], Long.class), filter);
+	}
+
+	private static int shape(Book filter) {
+		return (filter.getId() != null ? ID : 0)
+				| (filter.getTitle() != null ? TITLE : 0)
+				| (filter.getAuthor() != null ? AUTHOR : 0)
+				| (filter.getIsbn() != null ? ISBN : 0);
+	}
+
+	private static String where(int shape) {
+		StringBuilder where = new StringBuilder();
+		if ((shape & ID) != 0) {
+			and(where).append("b.id = :id");
+		}
+		if ((shape & TITLE) != 0) {
+			and(where).append("lower(b.title) like :title escape '\\'");
+		}
+		if ((shape & AUTHOR) != 0) {
+			and(where).append("lower(b.author) like :author escape '\\'");
+		}
+		if ((shape & ISBN) != 0) {
+			and(where).append("lower(b.isbn) like :isbn escape '\\'");
+		}
+		return where.toString();
+	}
+
+	private static StringBuilder and(StringBuilder where) {
+		return where.append(where.length() == 0 ? " where " : " and ");
+	}
+
+	private static String orderBy(Sort sort) {
+		StringBuilder orderBy = new StringBuilder(" order by ");
+		for (Sort.Order order : sort) {
+			if (!SORTABLE_PROPERTIES.contains(order.getProperty())) {
+				throw new IllegalArgumentException("Can not sort books by " + order.getProperty());
+			}
+			if (orderBy.length() > 10) {
+				orderBy.append(", ");
+			}
+			orderBy.append(order.isIgnoreCase() ? "lower(b." + order.getProperty() + ")" : "b." + order.getProperty())
+					.append(order.isAscending() ? " asc" : " desc");
+		}
+		return orderBy.toString();
+	}
+
+	private static <Q extends Query> Q bind(Q query, Book filter) {
+		if (filter.getId() != null) {
+			query.setParameter("id", filter.getId());
+		}
+		if (filter.getTitle() != null) {
+			query.setParameter("title", BookSpecifications.containing(filter.getTitle()));
+		}
+		if (filter.getAuthor() != null) {
+			query.setParameter("author", BookSpecifications.containing(filter.getAuthor()));
+		}
+		if (filter.getIsbn() != null) {
+			query.setParameter("isbn", BookSpecifications.containing(filter.getIsbn()));
+		}
+		return query;
+	}
+
+}
@@ -1,11 +1,34 @@
 package br.com.project.libraryapi.model.repository;
 
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+
+import java.util.Collection;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import javax.persistence.QueryHint;
+
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
 import br.com.project.libraryapi.model.entity.Book;
 
-public interface BookRepository extends JpaRepository<Book, Long>{
+public interface BookRepository extends JpaRepository<Book, Long>, BookRepositoryCustom {
 
 	boolean existsByIsbn(String isbn);
 
+	@Query("select b.isbn from Book b where b.isbn in :isbns")
+	Set<String> findIsbnsIn(@Param("isbns") Collection<String> isbns);
+
+	/*
+	 * The constructor expression returns unmanaged views, so rows read from the
+	 * cursor are not kept in the persistence context while the stream is open.
+	 */
+	@QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+	@Query("select new br.com.project.libraryapi.model.repository.BookView(b.id, b.title, b.author, b.isbn, b.version)"
+			+ " from Book b order by b.id")
+	Stream<BookView> streamAll();
+
 }
@@ -0,0 +1,35 @@
+package br.com.project.libraryapi.model.repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import br.com.project.libraryapi.model.entity.Book;
+
+public interface BookRepositoryCustom {
+
+	Slice<Book> findSlice(Specification<Book> specification, Sort sort, int size);
+
+	Page<BookView> findViews(Book filter, Pageable pageRequest);
+
+	List<BookView> findViewContent(Book filter, Pageable pageRequest);
+
+	long countViews(Book filter);
+
+	long countViews(Book filter, int limit);
+
+	boolean existsViewAt(Book filter, long position);
+
+	Page<BookView> search(String text, Pageable pageRequest);
+
+	List<Book> findAllByIdCachedFirst(Collection<Long> ids);
+
+	void forEachIsbn(Consumer<String> action);
+
+}
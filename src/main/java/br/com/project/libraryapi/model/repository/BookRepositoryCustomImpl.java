@@ -0,0 +1,206 @@
+package br.com.project.libraryapi.model.repository;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import javax.persistence.Cache;
+import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Expression;
+import javax.persistence.criteria.Order;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+
+import org.hibernate.search.engine.search.query.SearchResult;
+import org.hibernate.search.mapper.orm.Search;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.support.PageableExecutionUtils;
+
+import br.com.project.libraryapi.model.entity.Book;
+
+public class BookRepositoryCustomImpl implements BookRepositoryCustom {
+
+	private static final int ISBN_PAGE_SIZE = 10000;
+
+	private EntityManager entityManager;
+
+	public BookRepositoryCustomImpl(EntityManager entityManager) {
+		this.entityManager = entityManager;
+	}
+
+	/*
+	 * Reads one row past the requested size to know whether there is a next
+	 * slice, instead of running a count query. Ordered by the same keys the
+	 * keyset specification compares.
+	 */
+	@Override
+	public Slice<Book> findSlice(Specification<Book> specification, Sort sort, int size) {
+		CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+		CriteriaQuery<Book> query = cb.createQuery(Book.class);
+		Root<Book> root = query.from(Book.class);
+
+		Predicate predicate = specification.toPredicate(root, query, cb);
+		if (predicate != null) {
+			query.where(predicate);
+		}
+		List<Order> orders = new ArrayList<>();
+		for (Sort.Order order : sort) {
+			Expression<?> key = "id".equals(order.getProperty()) ? root.get("id")
+					: BookSpecifications.sortKey(root, cb, order.getProperty(), order.isIgnoreCase());
+			orders.add(order.isAscending() ? cb.asc(key) : cb.desc(key));
+		}
+		query.orderBy(orders);
+
+		List<Book> books = entityManager.createQuery(query)
+				.setMaxResults(size + 1)
+				.getResultList();
+
+		boolean hasNext = books.size() > size;
+		return new SliceImpl<>(hasNext ? books.subList(0, size) : books, PageRequest.of(0, size, sort), hasNext);
+	}
+
+	/*
+	 * Selects the listed columns into views, with the JPQL prepared for the
+	 * properties present in the filter. The count query only runs when the page
+	 * content does not tell the total by itself.
+	 */
+	@Override
+	public Page<BookView> findViews(Book filter, Pageable pageRequest) {
+		return PageableExecutionUtils.getPage(findViewContent(filter, pageRequest), pageRequest,
+				() -> countViews(filter));
+	}
+
+	@Override
+	public List<BookView> findViewContent(Book filter, Pageable pageRequest) {
+		TypedQuery<BookView> query = BookFilterQueries.select(entityManager, filter, pageRequest.getSort());
+		if (pageRequest.isPaged()) {
+			query.setFirstResult((int) pageRequest.getOffset()).setMaxResults(pageRequest.getPageSize());
+		}
+		return query.getResultList();
+	}
+
+	@Override
+	public long countViews(Book filter) {
+		return BookFilterQueries.count(entityManager, filter).getSingleResult();
+	}
+
+	/*
+	 * Reads at most limit ids instead of counting every match, so the database
+	 * can stop scanning once the limit is reached.
+	 */
+	@Override
+	public long countViews(Book filter, int limit) {
+		return BookFilterQueries.ids(entityManager, filter).setMaxResults(limit).getResultList().size();
+	}
+
+	/*
+	 * Reads a single id at the position, without loading the ones before it.
+	 */
+	@Override
+	public boolean existsViewAt(Book filter, long position) {
+		return !BookFilterQueries.ids(entityManager, filter)
+				.setFirstResult((int) Math.min(position, Integer.MAX_VALUE))
+				.setMaxResults(1)
+				.getResultList()
+				.isEmpty();
+	}
+
+	/*
+	 * Every term must match the title or the author, either exactly, as a
+	 * prefix or within one edit. Exact matches are boosted, and hits come
+	 * ordered by relevance. Hits are projected from the stored index fields,
+	 * without loading the books from the database.
+	 */
+	@Override
+	public Page<BookView> search(String text, Pageable pageRequest) {
+		List<String> terms = Arrays.stream(text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+"))
+				.filter(term -> !term.isEmpty())
+				.collect(Collectors.toList());
+		if (terms.isEmpty()) {
+			return Page.empty(pageRequest);
+		}
+
+		SearchResult<BookView> result = Search.session(entityManager)
+				.search(Book.class)
+				.select(f -> f.composite(BookRepositoryCustomImpl::toView,
+						f.field("id", Long.class), f.field("title", String.class), f.field("author", String.class),
+						f.field("isbn", String.class), f.field("version", Long.class)))
+				.where(f -> f.bool(query -> terms.forEach(term -> query.must(f.bool()
+						.should(f.match().fields("title", "author").matching(term).boost(2f))
+						.should(f.wildcard().fields("title", "author").matching(term + "*"))
+						.should(f.match().fields("title", "author").matching(term).fuzzy(1))))))
+				.fetch((int) pageRequest.getOffset(), pageRequest.getPageSize());
+
+		return new PageImpl<>(result.hits(), pageRequest, result.total().hitCount());
+	}
+
+	private static BookView toView(List<?> fields) {
+		return new BookView((Long) fields.get(0), (String) fields.get(1), (String) fields.get(2),
+				(String) fields.get(3), (Long) fields.get(4));
+	}
+
+	/*
+	 * Books held by the second-level cache are read from it, and only the
+	 * remaining ids are loaded, all with a single query.
+	 */
+	@Override
+	public List<Book> findAllByIdCachedFirst(Collection<Long> ids) {
+		Cache cache = entityManager.getEntityManagerFactory().getCache();
+		List<Book> books = new ArrayList<>(ids.size());
+		List<Long> uncached = new ArrayList<>();
+		for (Long id : ids) {
+			Book book = cache.contains(Book.class, id) ? entityManager.find(Book.class, id) : null;
+			if (book != null) {
+				books.add(book);
+			} else {
+				uncached.add(id);
+			}
+		}
+
+		if (!uncached.isEmpty()) {
+			books.addAll(entityManager.createQuery("select b from Book b where b.id in :ids", Book.class)
+					.setParameter("ids", uncached)
+					.getResultList());
+		}
+		return books;
+	}
+
+	/*
+	 * Reads the isbns in pages ordered by id, each page starting after the last
+	 * id of the previous one, so no transaction has to stay open for the whole
+	 * table.
+	 */
+	@Override
+	public void forEachIsbn(Consumer<String> action) {
+		Long after = 0L;
+		List<Object[]> page;
+		do {
+			page = entityManager.createQuery("select b.id, b.isbn from Book b where b.id > :after order by b.id",
+					Object[].class)
+					.setParameter("after", after)
+					.setMaxResults(ISBN_PAGE_SIZE)
+					.getResultList();
+			for (Object[] row : page) {
+				after = (Long) row[0];
+				if (row[1] != null) {
+					action.accept((String) row[1]);
+				}
+			}
+		} while (page.size() == ISBN_PAGE_SIZE);
+	}
+
+}
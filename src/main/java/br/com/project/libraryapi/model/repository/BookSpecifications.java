@@ -0,0 +1,96 @@
+package br.com.project.libraryapi.model.repository;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.Expression;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+
+import org.springframework.data.domain.Sort.Direction;
+import org.springframework.data.jpa.domain.Specification;
+
+import br.com.project.libraryapi.model.entity.Book;
+
+public final class BookSpecifications {
+
+	private static final char ESCAPE = '\\';
+
+	private BookSpecifications() {}
+
+	/**
+	 * Every non null property of the filter must match: the id exactly, and
+	 * the other ones contained in the book's one, ignoring case.
+	 */
+	public static Specification<Book> matching(Book filter) {
+		return (root, query, cb) -> {
+			List<Predicate> predicates = new ArrayList<>(4);
+			if (filter.getId() != null) {
+				predicates.add(cb.equal(root.get("id"), filter.getId()));
+			}
+			addContaining(predicates, cb, root.get("title"), filter.getTitle());
+			addContaining(predicates, cb, root.get("author"), filter.getAuthor());
+			addContaining(predicates, cb, root.get("isbn"), filter.getIsbn());
+			return cb.and(predicates.toArray(new Predicate[0]));
+		};
+	}
+
+	/**
+	 * Books placed after the given sort key and id, for keyset pagination
+	 * ordered by {@code property} and then by id in the same direction. The
+	 * key is compared as {@link #sortKey} orders it.
+	 */
+	public static Specification<Book> after(String property, Direction direction, boolean ignoreCase, String value,
+			Long id) {
+		return (root, query, cb) -> {
+			Path<Long> idPath = root.get("id");
+			Predicate idAfter = direction.isAscending() ? cb.greaterThan(idPath, id) : cb.lessThan(idPath, id);
+			if ("id".equals(property)) {
+				return idAfter;
+			}
+
+			Expression<String> key = sortKey(root, cb, property, ignoreCase);
+			Expression<String> after = ignoreCase ? cb.lower(cb.literal(value)) : cb.literal(value);
+			Predicate valueAfter = direction.isAscending() ? cb.greaterThan(key, after) : cb.lessThan(key, after);
+			return cb.or(valueAfter, cb.and(cb.equal(key, after), idAfter));
+		};
+	}
+
+	/**
+	 * Sort key of a text property in keyset pagination: a null value is placed
+	 * like an empty one, since databases disagree on where nulls go and a
+	 * comparison with null matches nothing.
+	 */
+	static Expression<String> sortKey(Root<Book> root, CriteriaBuilder cb, String property, boolean ignoreCase) {
+		Expression<String> key = cb.coalesce(root.<String>get(property), "");
+		return ignoreCase ? cb.lower(key) : key;
+	}
+
+	private static void addContaining(List<Predicate> predicates, CriteriaBuilder cb, Expression<String> property,
+			String value) {
+		if (value != null) {
+			predicates.add(cb.like(cb.lower(property), containing(value), ESCAPE));
+		}
+	}
+
+	/**
+	 * Like pattern of the values containing the given one, ignoring case.
+	 */
+	static String containing(String value) {
+		return "%" + escape(value.toLowerCase()) + "%";
+	}
+
+	private static String escape(String value) {
+		StringBuilder escaped = new StringBuilder(value.length());
+		for (char c : value.toCharArray()) {
+			if (c == '%' || c == '_' || c == ESCAPE) {
+				escaped.append(ESCAPE);
+			}
+			escaped.append(c);
+		}
+		return escaped.toString();
+	}
+
+}
@@ -0,0 +1,53 @@
+package br.com.project.libraryapi.model.repository;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * Read-only row of a book listing, built straight from query results or index
+ * projections, so listed books are neither hydrated as entities nor tracked
+ * by the persistence context. It serializes like the book dto.
+ */
+public class BookView {
+
+	private final Long id;
+	private final String title;
+	private final String author;
+	private final String isbn;
+	@JsonInclude(JsonInclude.Include.NON_NULL)
+	private final Long version;
+
+	public BookView(Long id, String title, String author, String isbn, Long version) {
+		this.id = id;
+		this.title = title;
+		this.author = author;
+		this.isbn = isbn;
+		this.version = version;
+	}
+
+	public Long getId() {
+		return id;
+	}
+
+	public String getTitle() {
+		return title;
+	}
+
+	public String getAuthor() {
+		return author;
+	}
+
+	public String getIsbn() {
+		return isbn;
+	}
+
+	public Long getVersion() {
+		return version;
+	}
+
+	@Override
+	public String toString() {
+		return "BookView [id=" + id + ", title=" + title + ", author=" + author + ", isbn=" + isbn + ", version="
+				+ version + "]";
+	}
+
+}
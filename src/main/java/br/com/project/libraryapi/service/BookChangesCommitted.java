@@ -0,0 +1,19 @@
+package br.com.project.libraryapi.service;
+
+/**
+ * Published once a transaction that changed books commits, after its changes
+ * can be read from the change log.
+ */
+public class BookChangesCommitted {
+
+	private final Long lastChangeId;
+
+	public BookChangesCommitted(Long lastChangeId) {
+		this.lastChangeId = lastChangeId;
+	}
+
+	public Long getLastChangeId() {
+		return lastChangeId;
+	}
+
+}
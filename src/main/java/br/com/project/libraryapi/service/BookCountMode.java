@@ -0,0 +1,48 @@
+package br.com.project.libraryapi.service;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+
+/**
+ * How the total of a filtered page is counted.
+ */
+public enum BookCountMode {
+
+	/**
+	 * Counts every match.
+	 */
+	EXACT,
+
+	/**
+	 * Reuses the count of the same filter for a minute, so the total may miss
+	 * the latest changes.
+	 */
+	CACHED,
+
+	/**
+	 * Counts up to {@link #CAP} matches, plus one. Past the cap a page only
+	 * tells whether another one follows, by a total of one past its end. See
+	 * {@link #isLowerBound(Page)}.
+	 */
+	CAPPED;
+
+	public static final int CAP = 1000;
+
+	/**
+	 * Whether the total of a capped page only means there are at least that
+	 * many matches.
+	 */
+	public static boolean isLowerBound(Page<?> page) {
+		long total = page.getTotalElements();
+		if (total == CAP + 1) {
+			return true;
+		}
+		Pageable pageable = page.getPageable();
+		if (pageable.isUnpaged()) {
+			return false;
+		}
+		long end = pageable.getOffset() + pageable.getPageSize();
+		return end > CAP && total == end + 1;
+	}
+
+}
@@ -0,0 +1,156 @@
+package br.com.project.libraryapi.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Sort.Direction;
+
+import br.com.project.libraryapi.model.entity.Book;
+
+/**
+ * Position of the last book of a keyset page: the sort key and the id used as
+ * tie-breaker. Clients only see it as an opaque token.
+ * <p>
+ * Whether the key ignores case is kept with it, so the next slices are
+ * ordered and sought like the first one. A null key is placed like an empty
+ * one.
+ */
+public class BookCursor {
+
+	private static final List<String> SORTABLE_PROPERTIES = Arrays.asList("id", "title", "author", "isbn");
+	private static final char SEPARATOR = ',';
+	private static final String IGNORE_CASE = "i";
+	private static final String MATCH_CASE = "c";
+
+	private final String property;
+	private final Direction direction;
+	private final boolean ignoreCase;
+	private final String value;
+	private final Long id;
+
+	public BookCursor(String property, Direction direction, String value, Long id) {
+		this(property, direction, false, value, id);
+	}
+
+	public BookCursor(String property, Direction direction, boolean ignoreCase, String value, Long id) {
+		this.property = property;
+		this.direction = direction;
+		this.ignoreCase = ignoreCase;
+		this.value = value == null ? "" : value;
+		this.id = id;
+	}
+
+	public static BookCursor after(Book book, Sort.Order order) {
+		return new BookCursor(order.getProperty(), order.getDirection(), order.isIgnoreCase(),
+				valueOf(book, order.getProperty()), book.getId());
+	}
+
+	/**
+	 * Cursor of the next slice, or null when the slice is the last one.
+	 */
+	public static BookCursor next(Slice<Book> slice) {
+		if (!slice.hasNext() || slice.getContent().isEmpty()) {
+			return null;
+		}
+		List<Book> books = slice.getContent();
+		return after(books.get(books.size() - 1), sortOrder(slice.getSort()));
+	}
+
+	/**
+	 * The single order supported by keyset pagination, ascending id when the
+	 * request is unsorted. Ignoring case only applies to the text properties.
+	 */
+	public static Sort.Order sortOrder(Sort sort) {
+		List<Sort.Order> orders = sort.toList();
+		if (orders.isEmpty()) {
+			return Sort.Order.asc("id");
+		}
+		Sort.Order order = orders.get(0);
+		if (orders.size() > 2 || (orders.size() == 2 && !"id".equals(orders.get(1).getProperty()))) {
+			throw new IllegalArgumentException("Keyset pagination supports a single sort property");
+		}
+		if (!SORTABLE_PROPERTIES.contains(order.getProperty())) {
+			throw new IllegalArgumentException("Can not sort books by " + order.getProperty());
+		}
+		if ("id".equals(order.getProperty()) && order.isIgnoreCase()) {
+			return new Sort.Order(order.getDirection(), "id");
+		}
+		return order;
+	}
+
+	public static BookCursor decode(String token) {
+		String decoded;
+		try {
+			decoded = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+		} catch (IllegalArgumentException e) {
+			throw new IllegalArgumentException("Invalid cursor", e);
+		}
+
+		String[] parts = decoded.split(String.valueOf(SEPARATOR), 5);
+		if (parts.length != 5 || !SORTABLE_PROPERTIES.contains(parts[0])
+				|| !(IGNORE_CASE.equals(parts[2]) || MATCH_CASE.equals(parts[2]))) {
+			throw new IllegalArgumentException("Invalid cursor");
+		}
+		try {
+			return new BookCursor(parts[0], Direction.fromString(parts[1]), IGNORE_CASE.equals(parts[2]), parts[4],
+					Long.valueOf(parts[3]));
+		} catch (IllegalArgumentException e) {
+			throw new IllegalArgumentException("Invalid cursor", e);
+		}
+	}
+
+	public String encode() {
+		String raw = property + SEPARATOR + direction + SEPARATOR + (ignoreCase ? IGNORE_CASE : MATCH_CASE)
+				+ SEPARATOR + id + SEPARATOR + value;
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+	}
+
+	public Sort.Order getOrder() {
+		Sort.Order order = new Sort.Order(direction, property);
+		return ignoreCase ? order.ignoreCase() : order;
+	}
+
+	public String getProperty() {
+		return property;
+	}
+
+	public Direction getDirection() {
+		return direction;
+	}
+
+	public boolean isIgnoreCase() {
+		return ignoreCase;
+	}
+
+	public String getValue() {
+		return value;
+	}
+
+	public Long getId() {
+		return id;
+	}
+
+	private static String valueOf(Book book, String property) {
+		switch (property) {
+		case "title":
+			return book.getTitle();
+		case "author":
+			return book.getAuthor();
+		case "isbn":
+			return book.getIsbn();
+		default:
+			return String.valueOf(book.getId());
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "BookCursor [property=" + property + ", direction=" + direction + ", ignoreCase=" + ignoreCase
+				+ ", value=" + value + ", id=" + id + "]";
+	}
+
+}
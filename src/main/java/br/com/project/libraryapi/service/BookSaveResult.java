@@ -0,0 +1,35 @@
+package br.com.project.libraryapi.service;
+
+import br.com.project.libraryapi.model.entity.Book;
+
+public class BookSaveResult {
+
+	private final Book book;
+	private final String error;
+
+	private BookSaveResult(Book book, String error) {
+		this.book = book;
+		this.error = error;
+	}
+
+	public static BookSaveResult saved(Book book) {
+		return new BookSaveResult(book, null);
+	}
+
+	public static BookSaveResult rejected(Book book, String error) {
+		return new BookSaveResult(book, error);
+	}
+
+	public boolean isSaved() {
+		return error == null;
+	}
+
+	public Book getBook() {
+		return book;
+	}
+
+	public String getError() {
+		return error;
+	}
+
+}
@@ -1,22 +1,45 @@
 package br.com.project.libraryapi.service;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 
 import br.com.project.libraryapi.model.entity.Book;
+import br.com.project.libraryapi.model.entity.BookChange;
+import br.com.project.libraryapi.model.repository.BookView;
 
 public interface BookService {
 
 	Book save(Book any);
 
+	List<BookSaveResult> saveAll(List<Book> books);
+
 	Optional<Book> getById(Long id);
 
+	Map<Long, Book> getByIds(Collection<Long> ids);
+
 	void delete(Long id);
 
-	Book update(Book entity);
+	Optional<Book> update(Book entity);
+
+	Optional<Book> updateFields(Book changes);
+
+	Page<BookView> find(Book filter, Pageable pageRequest);
+
+	Page<BookView> find(Book filter, Pageable pageRequest, BookCountMode countMode);
+
+	Page<BookView> search(String text, Pageable pageRequest);
+
+	Slice<Book> findAfter(Book filter, BookCursor after, Pageable pageRequest);
+
+	void export(Consumer<BookView> action);
 
-	Page<Book> find(Book filter, Pageable pageRequest);
+	List<BookChange> findChanges(long after, int limit);
 
 }
@@ -0,0 +1,41 @@
+package br.com.project.libraryapi.service;
+
+/**
+ * State of a book mutation accepted by the write-behind queue, as seen by the
+ * client polling its ticket.
+ */
+public class BookWriteStatus {
+
+	public enum State {
+		PENDING, DONE, FAILED
+	}
+
+	private final String ticket;
+	private final State state;
+	private final Long bookId;
+	private final String error;
+
+	public BookWriteStatus(String ticket, State state, Long bookId, String error) {
+		this.ticket = ticket;
+		this.state = state;
+		this.bookId = bookId;
+		this.error = error;
+	}
+
+	public String getTicket() {
+		return ticket;
+	}
+
+	public State getState() {
+		return state;
+	}
+
+	public Long getBookId() {
+		return bookId;
+	}
+
+	public String getError() {
+		return error;
+	}
+
+}
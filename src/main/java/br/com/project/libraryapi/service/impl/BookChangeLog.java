@@ -0,0 +1,172 @@
+package br.com.project.libraryapi.service.impl;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import br.com.project.libraryapi.exception.BookChangesPurgedException;
+import br.com.project.libraryapi.model.entity.Book;
+import br.com.project.libraryapi.model.entity.BookChange;
+import br.com.project.libraryapi.model.entity.BookChangeCounter;
+import br.com.project.libraryapi.model.repository.BookChangeCounterRepository;
+import br.com.project.libraryapi.model.repository.BookChangeRepository;
+import br.com.project.libraryapi.service.BookChangesCommitted;
+
+/**
+ * Ordered log of the book mutations, written to the book change table in the
+ * transaction of each mutation. Changes older than the retention are purged
+ * in the background.
+ * <p>
+ * The changes of a transaction are only appended as it commits, with the ids
+ * after the last one of the {@link BookChangeCounter}, whose row stays locked
+ * until the commit ends. A transaction appending later waits for it, so once a
+ * change can be read every change with a lower id, of any instance, can be
+ * read too.
+ */
+public class BookChangeLog {
+
+	private static final Logger log = LoggerFactory.getLogger(BookChangeLog.class);
+
+	private final BookChangeRepository repository;
+	private final BookChangeCounterRepository counters;
+	private final ApplicationEventPublisher publisher;
+	private final Duration retention;
+	private final Duration purgeInterval;
+
+	private ScheduledExecutorService purger;
+
+	public BookChangeLog(BookChangeRepository repository, BookChangeCounterRepository counters,
+			ApplicationEventPublisher publisher, Duration retention, Duration purgeInterval) {
+		this.repository = repository;
+		this.counters = counters;
+		this.publisher = publisher;
+		this.retention = retention;
+		this.purgeInterval = purgeInterval;
+	}
+
+	public void start() {
+		if (!counters.existsById(BookChangeCounter.ID)) {
+			try {
+				counters.saveAndFlush(new BookChangeCounter(BookChangeCounter.ID, repository.findLastId().orElse(0l)));
+			} catch (DataIntegrityViolationException e) {
+				log.debug("The book change counter was created by another instance", e);
+			}
+		}
+		purger = Executors.newSingleThreadScheduledExecutor(task -> new Thread(task, "book-change-purge"));
+		purger.scheduleWithFixedDelay(this::purgeQuietly, purgeInterval.toMillis(), purgeInterval.toMillis(),
+				TimeUnit.MILLISECONDS);
+	}
+
+	public void stop() {
+		if (purger != null) {
+			purger.shutdownNow();
+		}
+	}
+
+	public void record(BookChange.Type type, Book book) {
+		record(type, List.of(book));
+	}
+
+	/**
+	 * Takes the state of the books now, and appends it to the log when the
+	 * current transaction commits.
+	 */
+	public void record(BookChange.Type type, Collection<Book> books) {
+		if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+			throw new IllegalStateException("Book changes are recorded in the transaction of the mutation");
+		}
+		List<BookChange> changes = new ArrayList<>(books.size());
+		for (Book book : books) {
+			changes.add(new BookChange(type, book));
+		}
+		if (changes.isEmpty()) {
+			return;
+		}
+
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+			@Override
+			public void beforeCommit(boolean readOnly) {
+				append(changes);
+			}
+
+			@Override
+			public void afterCommit() {
+				publisher.publishEvent(new BookChangesCommitted(changes.get(changes.size() - 1).getId()));
+			}
+		});
+	}
+
+	/*
+	 * The book writes are flushed first, so the counter is only locked from
+	 * the insert of the changes to the end of the commit.
+	 */
+	private void append(List<BookChange> changes) {
+		repository.flush();
+		BookChangeCounter counter = counters.lockById(BookChangeCounter.ID)
+				.orElseThrow(() -> new IllegalStateException("The book change counter is missing"));
+		long id = counter.getLastChangeId();
+		for (BookChange change : changes) {
+			change.setId(++id);
+		}
+		counter.setLastChangeId(id);
+		repository.saveAll(changes);
+	}
+
+	/**
+	 * Returns the changes after the given id, in order. Ids have no gaps, so
+	 * when the change right after it is missing it was purged.
+	 *
+	 * @throws BookChangesPurgedException if changes after the given id were
+	 *                                    purged
+	 */
+	public List<BookChange> findAfter(long after, int limit) {
+		List<BookChange> changes = repository.findAfter(after, PageRequest.of(0, limit));
+		if (changes.isEmpty()) {
+			// the counter is read first, so a change counted by it is found by the read again below
+			if (lastChangeId() <= after) {
+				return changes;
+			}
+			changes = repository.findAfter(after, PageRequest.of(0, limit));
+		}
+		if (changes.isEmpty() || changes.get(0).getId() > after + 1) {
+			throw new BookChangesPurgedException(after, lastChangeId());
+		}
+		return changes;
+	}
+
+	/**
+	 * Id of the last change committed, by any instance.
+	 */
+	public long lastChangeId() {
+		return counters.findById(BookChangeCounter.ID).map(BookChangeCounter::getLastChangeId).orElse(0l);
+	}
+
+	public int purge() {
+		return repository.deleteChangedBefore(Instant.now().minus(retention));
+	}
+
+	private void purgeQuietly() {
+		try {
+			int purged = purge();
+			if (purged > 0) {
+				log.info("Purged {} book changes older than {}", purged, retention);
+			}
+		} catch (RuntimeException e) {
+			log.error("Could not purge the book change log", e);
+		}
+	}
+
+}
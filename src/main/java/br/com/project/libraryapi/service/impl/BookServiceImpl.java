@@ -1,71 +1,540 @@
 package br.com.project.libraryapi.service.impl;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
-import org.springframework.data.domain.Example;
-import org.springframework.data.domain.ExampleMatcher;
-import org.springframework.data.domain.ExampleMatcher.StringMatcher;
+import org.hibernate.exception.ConstraintViolationException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import io.micrometer.core.annotation.Timed;
+
+import br.com.project.libraryapi.exception.BookChangesPurgedException;
 import br.com.project.libraryapi.exception.BusinessException;
 import br.com.project.libraryapi.model.entity.Book;
+import br.com.project.libraryapi.model.entity.BookChange;
 import br.com.project.libraryapi.model.repository.BookRepository;
+import br.com.project.libraryapi.model.repository.BookSpecifications;
+import br.com.project.libraryapi.model.repository.BookView;
+import br.com.project.libraryapi.service.BookCountMode;
+import br.com.project.libraryapi.service.BookCursor;
+import br.com.project.libraryapi.service.BookSaveResult;
 import br.com.project.libraryapi.service.BookService;
 
 @Service
 public class BookServiceImpl implements BookService {
 
+	private static final Logger log = LoggerFactory.getLogger(BookServiceImpl.class);
+
+	static final int BATCH_CHUNK_SIZE = 500;
+	static final String ISBN_INDEX_CACHE = "bookIdsByIsbn";
+	static final String COUNT_CACHE = "bookCounts";
+	static final int MAX_LOOKUP_IDS = 1000;
+	static final String ISBN_IN_USE = "Isbn is already in use.";
+	static final String TIMER = "book.service";
+	static final long MIN_ISBN_FILTER_CAPACITY = 100_000;
+	static final int MAX_CHANGES = 1000;
+	static final long ISBN_FILTER_FOLLOW_NANOS = TimeUnit.SECONDS.toNanos(1);
+
 	private BookRepository repository;
+	private BookChangeLog changeLog;
+	private TransactionTemplate transactionTemplate;
+	private Cache isbnIndex;
+	private Cache counts;
+	/* null until loaded, when every isbn might be in use */
+	private volatile IsbnBloomFilter isbnFilter;
+	/* the filter being loaded, which also takes the isbns saved meanwhile */
+	private volatile IsbnBloomFilter loadingIsbnFilter;
+	/* held while the filter is loaded or follows the change log, which never overlap */
+	private final AtomicBoolean isbnFilterLoading = new AtomicBoolean();
+	/* last change whose isbn the filter took */
+	private volatile long isbnFilterChangeId;
+	private volatile long isbnFilterFollowedAt = System.nanoTime();
 
-	public BookServiceImpl(BookRepository repository) {
+	public BookServiceImpl(BookRepository repository, BookChangeLog changeLog, CacheManager cacheManager,
+			PlatformTransactionManager transactionManager) {
 		this.repository = repository;
+		this.changeLog = changeLog;
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+		this.isbnIndex = cacheManager.getCache(ISBN_INDEX_CACHE);
+		this.counts = cacheManager.getCache(COUNT_CACHE);
 	}
 
 	@Override
+	@Timed(TIMER)
 	public Book save(Book book) {
+		if (isIndexedIsbn(book.getIsbn())) {
+			throw new BusinessException(ISBN_IN_USE);
+		}
+
+		Book savedBook;
 		try {
-			if (repository.existsByIsbn(book.getIsbn())) {
-				throw new BusinessException("Isbn is already in use.");
+			savedBook = transactionTemplate.execute(transaction -> {
+				Book saved = repository.saveAndFlush(book);
+				changeLog.record(BookChange.Type.CREATE, saved);
+				return saved;
+			});
+		} catch (DataIntegrityViolationException e) {
+			throw duplicatedIsbn(e);
+		}
+		index(savedBook);
+		return savedBook;
+	}
+
+	/*
+	 * Only rejects isbns already known to belong to another book, which saves
+	 * an insert doomed to fail. The unique index has the last word, and it is
+	 * checked by the insert itself, without a query before it. A cached isbn
+	 * counts only if the cached book, usually a second-level cache hit, still
+	 * carries it.
+	 */
+	private boolean isIndexedIsbn(String isbn) {
+		if (isbn == null || !mightBeUsed(isbn)) {
+			return false;
+		}
+
+		Long cachedId = isbnIndex.get(isbn, Long.class);
+		if (cachedId == null) {
+			return false;
+		}
+		if (repository.findById(cachedId).filter(book -> isbn.equals(book.getIsbn())).isPresent()) {
+			return true;
+		}
+		isbnIndex.evict(isbn);
+		return false;
+	}
+
+	private static RuntimeException duplicatedIsbn(DataIntegrityViolationException exception) {
+		if (exception.getCause() instanceof ConstraintViolationException) {
+			String constraint = ((ConstraintViolationException) exception.getCause()).getConstraintName();
+			if (constraint != null && constraint.toLowerCase().contains(Book.ISBN_INDEX)) {
+				return new BusinessException(ISBN_IN_USE);
 			}
-		} catch (BusinessException e) {
-			e.printStackTrace();
 		}
+		return exception;
+	}
+
+	private void index(Book book) {
+		if (book.getIsbn() != null && book.getId() != null) {
+			isbnIndex.put(book.getIsbn(), book.getId());
+			addToIsbnFilter(book.getIsbn());
+		}
+	}
+
+	/**
+	 * Fills a filter with the isbns of the stored books, sized for twice as
+	 * many, and replaces the current one with it. Runs when the application is
+	 * ready and again whenever the filter is full. Until the first load ends,
+	 * every isbn is checked against the database.
+	 */
+	@EventListener(ApplicationReadyEvent.class)
+	public void loadIsbnFilter() {
+		if (!isbnFilterLoading.compareAndSet(false, true)) {
+			return;
+		}
+		try {
+			long start = System.nanoTime();
+			// read first, so the books committed during the load are followed in the change log
+			long lastChangeId = changeLog.lastChangeId();
+			IsbnBloomFilter filter = new IsbnBloomFilter(Math.max(MIN_ISBN_FILTER_CAPACITY, 2 * repository.count()));
+			loadingIsbnFilter = filter;
+			repository.forEachIsbn(filter::add);
+			isbnFilterChangeId = lastChangeId;
+			isbnFilter = filter;
+			log.info("Loaded {} isbns into the duplicate filter in {} ms", filter.size(),
+					(System.nanoTime() - start) / 1_000_000);
+		} catch (RuntimeException e) {
+			log.warn("Could not load the isbn duplicate filter, isbns are checked against the database", e);
+		} finally {
+			loadingIsbnFilter = null;
+			isbnFilterLoading.set(false);
+		}
+	}
 
-		return repository.save(book);
+	private boolean mightBeUsed(String isbn) {
+		IsbnBloomFilter filter = isbnFilter;
+		if (filter != null && System.nanoTime() - isbnFilterFollowedAt > ISBN_FILTER_FOLLOW_NANOS) {
+			isbnFilterFollowedAt = System.nanoTime();
+			CompletableFuture.runAsync(this::followIsbnChanges);
+		}
+		return filter == null || filter.mightContain(isbn);
+	}
+
+	/**
+	 * Adds the isbns of the books created or updated since the filter was
+	 * loaded or last followed the change log, which includes the ones saved by
+	 * other instances. Runs in the background at most once a second while
+	 * isbns are checked, so the filter of an instance lags the others by about
+	 * that long; the unique index catches the duplicates missed meanwhile.
+	 */
+	public void followIsbnChanges() {
+		if (!isbnFilterLoading.compareAndSet(false, true)) {
+			return;
+		}
+		boolean reload = false;
+		try {
+			IsbnBloomFilter filter = isbnFilter;
+			if (filter == null) {
+				return;
+			}
+			long after = isbnFilterChangeId;
+			List<BookChange> changes;
+			do {
+				changes = changeLog.findAfter(after, MAX_CHANGES);
+				for (BookChange change : changes) {
+					if (change.getType() != BookChange.Type.DELETE && change.getIsbn() != null) {
+						filter.add(change.getIsbn());
+					}
+					after = change.getId();
+				}
+				isbnFilterChangeId = after;
+			} while (changes.size() == MAX_CHANGES);
+			reload = filter.size() > filter.capacity();
+		} catch (BookChangesPurgedException e) {
+			log.warn("The isbn duplicate filter fell behind the change log, reloading it");
+			reload = true;
+		} catch (RuntimeException e) {
+			log.warn("Could not follow the book changes in the isbn duplicate filter", e);
+		} finally {
+			isbnFilterLoading.set(false);
+		}
+		if (reload) {
+			loadIsbnFilter();
+		}
+	}
+
+	/*
+	 * An isbn missed here, by a save racing a load, only means its duplicates
+	 * are caught by the unique index instead. It is added again when the filter
+	 * follows the change log, which does not count it twice.
+	 */
+	private void addToIsbnFilter(String isbn) {
+		IsbnBloomFilter loading = loadingIsbnFilter;
+		if (loading != null) {
+			loading.add(isbn);
+		}
+		IsbnBloomFilter filter = isbnFilter;
+		if (filter != null && !filter.add(isbn) && filter.size() == filter.capacity() + 1) {
+			CompletableFuture.runAsync(this::loadIsbnFilter);
+		}
 	}
 
 	@Override
+	@Timed(TIMER)
+	public List<BookSaveResult> saveAll(List<Book> books) {
+		List<BookSaveResult> results = new ArrayList<>(books.size());
+		for (int start = 0; start < books.size(); start += BATCH_CHUNK_SIZE) {
+			List<Book> chunk = books.subList(start, Math.min(start + BATCH_CHUNK_SIZE, books.size()));
+			results.addAll(saveChunk(chunk));
+		}
+		return results;
+	}
+
+	/**
+	 * Checks the isbns of the whole chunk with a single query and inserts the
+	 * accepted books and their changes in one transaction, so Hibernate can
+	 * group them in JDBC batches. Only the isbns the filter can not tell free are queried.
+	 */
+	private List<BookSaveResult> saveChunk(List<Book> chunk) {
+		Set<String> isbns = chunk.stream()
+				.map(Book::getIsbn)
+				.filter(Objects::nonNull)
+				.filter(this::mightBeUsed)
+				.collect(Collectors.toSet());
+		Set<String> usedIsbns = isbns.isEmpty() ? new HashSet<>() : new HashSet<>(repository.findIsbnsIn(isbns));
+
+		List<BookSaveResult> results = new ArrayList<>(chunk.size());
+		List<Book> accepted = new ArrayList<>(chunk.size());
+		for (Book book : chunk) {
+			if (book.getIsbn() == null || book.getIsbn().isEmpty()) {
+				results.add(BookSaveResult.rejected(book, "Isbn is required."));
+			} else if (!usedIsbns.add(book.getIsbn())) {
+				results.add(BookSaveResult.rejected(book, ISBN_IN_USE));
+			} else {
+				accepted.add(book);
+				results.add(BookSaveResult.saved(book));
+			}
+		}
+
+		if (!accepted.isEmpty()) {
+			try {
+				transactionTemplate.executeWithoutResult(transaction -> {
+					repository.saveAll(accepted);
+					changeLog.record(BookChange.Type.CREATE, accepted);
+				});
+				accepted.forEach(book -> addToIsbnFilter(book.getIsbn()));
+			} catch (DataIntegrityViolationException e) {
+				// an isbn was taken after the check, so the rolled back chunk is retried book by book
+				for (int i = 0; i < results.size(); i++) {
+					if (results.get(i).isSaved()) {
+						results.set(i, saveOne(results.get(i).getBook()));
+					}
+				}
+			}
+		}
+		return results;
+	}
+
+	private BookSaveResult saveOne(Book book) {
+		book.setId(null);
+		try {
+			return BookSaveResult.saved(save(book));
+		} catch (BusinessException e) {
+			return BookSaveResult.rejected(book, e.getMessage());
+		}
+	}
+
+	@Override
+	@Timed(TIMER)
+	@Transactional(readOnly = true)
 	public Optional<Book> getById(Long id) {
 		return repository.findById(id);
 	}
 
+	/**
+	 * Returns the books found, keyed and ordered by the requested ids.
+	 */
 	@Override
+	@Timed(TIMER)
+	@Transactional(readOnly = true)
+	public Map<Long, Book> getByIds(Collection<Long> ids) {
+		Set<Long> distinctIds = ids.stream()
+				.filter(Objects::nonNull)
+				.collect(Collectors.toCollection(LinkedHashSet::new));
+		if (distinctIds.size() > MAX_LOOKUP_IDS) {
+			throw new IllegalArgumentException("At most " + MAX_LOOKUP_IDS + " books can be looked up at once");
+		}
+
+		Map<Long, Book> found = distinctIds.isEmpty() ? Map.of()
+				: repository.findAllByIdCachedFirst(distinctIds).stream()
+					.collect(Collectors.toMap(Book::getId, Function.identity()));
+
+		Map<Long, Book> books = new LinkedHashMap<>();
+		for (Long id : distinctIds) {
+			Book book = found.get(id);
+			if (book != null) {
+				books.put(id, book);
+			}
+		}
+		return books;
+	}
+
+	@Override
+	@Timed(TIMER)
+	@Transactional
 	public void delete(Long id) {
 		if(id == null) {
 			throw new IllegalArgumentException("Book id can not be null");
 		}
+		Optional<Book> found = repository.findById(id);
+		found.map(Book::getIsbn)
+			.ifPresent(isbnIndex::evict);
 		repository.deleteById(id);
+		changeLog.record(BookChange.Type.DELETE, found.orElseGet(() -> new Book(id, null, null, null)));
+	}
+
+	@Override
+	@Timed(TIMER)
+	@Transactional
+	public Optional<Book> update(Book book) {
+		checkId(book);
+		return modify(book, stored -> {
+			stored.setTitle(book.getTitle());
+			stored.setAuthor(book.getAuthor());
+			stored.setIsbn(book.getIsbn());
+		});
 	}
 
 	@Override
-	public Book update(Book book) {
+	@Timed(TIMER)
+	@Transactional
+	public Optional<Book> updateFields(Book changes) {
+		checkId(changes);
+		return modify(changes, stored -> {
+			if (changes.getTitle() != null) {
+				stored.setTitle(changes.getTitle());
+			}
+			if (changes.getAuthor() != null) {
+				stored.setAuthor(changes.getAuthor());
+			}
+			if (changes.getIsbn() != null) {
+				stored.setIsbn(changes.getIsbn());
+			}
+		});
+	}
+
+	private static void checkId(Book book) {
 		if(book	== null || book.getId() == null) {
 			throw new IllegalArgumentException("Book id can not be null");
 		}
-		return repository.save(book);
+	}
+
+	/*
+	 * The stored book, usually a second-level cache hit, is changed in place,
+	 * so the flush sends a single UPDATE of the changed columns guarded by the
+	 * version. A bulk update query would skip the load, but it invalidates the
+	 * whole Book cache region and bypasses the full-text index.
+	 */
+	private Optional<Book> modify(Book changes, Consumer<Book> change) {
+		Optional<Book> found = repository.findById(changes.getId());
+		if (found.isEmpty()) {
+			return found;
+		}
+
+		Book book = found.get();
+		if (changes.getVersion() != null && !changes.getVersion().equals(book.getVersion())) {
+			throw new ObjectOptimisticLockingFailureException(Book.class, book.getId());
+		}
+
+		String previousIsbn = book.getIsbn();
+		change.accept(book);
+		try {
+			repository.flush();
+		} catch (DataIntegrityViolationException e) {
+			throw duplicatedIsbn(e);
+		}
+		if (previousIsbn != null && !previousIsbn.equals(book.getIsbn())) {
+			isbnIndex.evict(previousIsbn);
+		}
+		index(book);
+		changeLog.record(BookChange.Type.UPDATE, book);
+		return found;
+	}
+
+	@Override
+	@Timed(TIMER)
+	@Transactional(readOnly = true)
+	public Page<BookView> find(Book filter, Pageable pageRequest) {
+		return repository.findViews(filter, pageRequest);
+	}
+
+	/*
+	 * The total is only counted when the page content does not tell it by
+	 * itself, the same as for the exact count.
+	 */
+	@Override
+	@Timed(TIMER)
+	@Transactional(readOnly = true)
+	public Page<BookView> find(Book filter, Pageable pageRequest, BookCountMode countMode) {
+		switch (countMode) {
+		case CACHED:
+			return PageableExecutionUtils.getPage(repository.findViewContent(filter, pageRequest), pageRequest,
+					() -> counts.get(countKey(filter), () -> repository.countViews(filter)));
+		case CAPPED:
+			List<BookView> content = repository.findViewContent(filter, pageRequest);
+			return PageableExecutionUtils.getPage(content, pageRequest,
+					() -> cappedCount(filter, pageRequest, content.isEmpty()));
+		default:
+			return repository.findViews(filter, pageRequest);
+		}
+	}
+
+	/*
+	 * At most CAP + 1 ids are read. A full page ending past the cap only
+	 * probes the row after it, to tell whether another page follows.
+	 */
+	private long cappedCount(Book filter, Pageable pageRequest, boolean empty) {
+		if (empty || pageRequest.isUnpaged()) {
+			return repository.countViews(filter, BookCountMode.CAP + 1);
+		}
+		long end = pageRequest.getOffset() + pageRequest.getPageSize();
+		if (end <= BookCountMode.CAP) {
+			return repository.countViews(filter, BookCountMode.CAP + 1);
+		}
+		return repository.existsViewAt(filter, end) ? end + 1 : end;
+	}
+
+	/*
+	 * Properties other than the id match ignoring case, so filters differing
+	 * only in case share their count.
+	 */
+	private static List<Object> countKey(Book filter) {
+		return Arrays.asList(filter.getId(), lowerCase(filter.getTitle()), lowerCase(filter.getAuthor()),
+				lowerCase(filter.getIsbn()));
+	}
+
+	private static String lowerCase(String value) {
+		return value != null ? value.toLowerCase(Locale.ROOT) : null;
 	}
 
 	@Override
-	public Page<Book> find(Book filter, Pageable pageRequest) {
-		Example<Book> example = Example.of(filter,
-				ExampleMatcher
-					.matching()
-					.withIgnoreCase()
-					.withIgnoreNullValues()
-					.withStringMatcher(StringMatcher.CONTAINING));
-		return repository.findAll(example, pageRequest);
+	@Timed(TIMER)
+	@Transactional(readOnly = true)
+	public Page<BookView> search(String text, Pageable pageRequest) {
+		if (text == null || text.trim().isEmpty()) {
+			throw new IllegalArgumentException("Search text can not be empty");
+		}
+		return repository.search(text, pageRequest);
+	}
+
+	@Override
+	@Timed(TIMER)
+	@Transactional(readOnly = true)
+	public Slice<Book> findAfter(Book filter, BookCursor after, Pageable pageRequest) {
+		Sort.Order order = after != null ? after.getOrder() : BookCursor.sortOrder(pageRequest.getSort());
+
+		Specification<Book> specification = BookSpecifications.matching(filter);
+		if (after != null) {
+			specification = specification.and(BookSpecifications.after(after.getProperty(), after.getDirection(),
+					after.isIgnoreCase(), after.getValue(), after.getId()));
+		}
+
+		Sort sort = Sort.by(order);
+		if (!"id".equals(order.getProperty())) {
+			sort = sort.and(Sort.by(order.getDirection(), "id"));
+		}
+		return repository.findSlice(specification, sort, pageRequest.getPageSize());
+	}
+
+	@Override
+	@Timed(TIMER)
+	@Transactional(readOnly = true)
+	public void export(Consumer<BookView> action) {
+		try (Stream<BookView> books = repository.streamAll()) {
+			books.forEach(action);
+		}
+	}
+
+	@Override
+	@Timed(TIMER)
+	public List<BookChange> findChanges(long after, int limit) {
+		if (limit < 1 || limit > MAX_CHANGES) {
+			throw new IllegalArgumentException("Between 1 and " + MAX_CHANGES + " changes can be read at once");
+		}
+		return changeLog.findAfter(after, limit);
 	}
 
 }
@@ -0,0 +1,336 @@
+package br.com.project.libraryapi.service.impl;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import br.com.project.libraryapi.config.WriteBehindProperties;
+import br.com.project.libraryapi.exception.BusinessException;
+import br.com.project.libraryapi.model.entity.Book;
+import br.com.project.libraryapi.service.BookSaveResult;
+import br.com.project.libraryapi.service.BookService;
+import br.com.project.libraryapi.service.BookWriteStatus;
+import br.com.project.libraryapi.service.BookWriteStatus.State;
+
+/**
+ * Accepts book mutations without waiting for the database. Mutations are
+ * journaled, held in a bounded queue where later changes to a book replace
+ * the pending ones, and written by a single background thread in batches:
+ * creations through {@link BookService#saveAll}, updates and deletions in one
+ * transaction per batch.
+ */
+public class BookWriteBehindQueue {
+
+	private static final Logger log = LoggerFactory.getLogger(BookWriteBehindQueue.class);
+
+	static final String NOT_FOUND = "Book not found.";
+
+	enum Type {
+		CREATE, UPDATE, DELETE
+	}
+
+	private final BookService service;
+	private final TransactionTemplate transactionTemplate;
+	private final WriteBehindJournal journal;
+	private final int capacity;
+	private final int batchSize;
+	private final long flushIntervalMillis;
+
+	private final Object lock = new Object();
+	/* creations keyed by ticket, updates and deletions by book id */
+	private final Map<Object, Operation> pending = new LinkedHashMap<>();
+	private final Map<String, BookWriteStatus> statuses = new HashMap<>();
+	/* tickets done or failed, oldest first; pending tickets are never evicted */
+	private final Deque<String> finished = new ArrayDeque<>();
+	private final int retainedResults;
+	private int inFlight;
+	/* tickets queued or in flight, coalesced ones included, bounded by the capacity */
+	private int unfinishedTickets;
+	private ScheduledExecutorService flusher;
+
+	public BookWriteBehindQueue(BookService service, PlatformTransactionManager transactionManager,
+			ObjectMapper objectMapper, WriteBehindProperties properties) throws IOException {
+		this.service = service;
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+		this.journal = new WriteBehindJournal(properties.getJournal(), objectMapper);
+		this.capacity = properties.getCapacity();
+		this.batchSize = properties.getBatchSize();
+		this.flushIntervalMillis = properties.getFlushInterval().toMillis();
+		this.retainedResults = properties.getRetainedResults();
+
+		for (WriteBehindJournal.Entry entry : journal.unfinished()) {
+			Book book = new Book(entry.id, entry.title, entry.author, entry.isbn);
+			synchronized (lock) {
+				enqueue(entry.ticket, Type.valueOf(entry.type), book);
+			}
+		}
+		if (!journal.unfinished().isEmpty()) {
+			log.info("Replayed {} unfinished book mutations from the journal", journal.unfinished().size());
+		}
+	}
+
+	public void start() {
+		flusher = Executors.newSingleThreadScheduledExecutor(task -> new Thread(task, "book-write-behind"));
+		flusher.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMillis, flushIntervalMillis,
+				TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Stops the background thread and writes whatever is still queued.
+	 */
+	public void stop() throws IOException, InterruptedException {
+		if (flusher != null) {
+			flusher.shutdown();
+			flusher.awaitTermination(30, TimeUnit.SECONDS);
+		}
+		flush();
+		journal.close();
+	}
+
+	public BookWriteStatus create(Book book) {
+		return accept(Type.CREATE, book);
+	}
+
+	public BookWriteStatus update(Book book) {
+		if (book.getId() == null) {
+			throw new IllegalArgumentException("Book id can not be null");
+		}
+		return accept(Type.UPDATE, book);
+	}
+
+	public BookWriteStatus delete(Long id) {
+		if (id == null) {
+			throw new IllegalArgumentException("Book id can not be null");
+		}
+		return accept(Type.DELETE, new Book(id, null, null, null));
+	}
+
+	public Optional<BookWriteStatus> status(String ticket) {
+		synchronized (lock) {
+			return Optional.ofNullable(statuses.get(ticket));
+		}
+	}
+
+	public int pending() {
+		synchronized (lock) {
+			return pending.size() + inFlight;
+		}
+	}
+
+	/*
+	 * The journal line is written under the lock, so it is ordered with the
+	 * queue, but forced outside of it, so concurrent clients share a sync.
+	 */
+	private BookWriteStatus accept(Type type, Book book) {
+		String ticket = UUID.randomUUID().toString();
+		BookWriteStatus status;
+		synchronized (lock) {
+			if (unfinishedTickets >= capacity) {
+				throw new RejectedExecutionException("Write-behind queue is full");
+			}
+			journal.append(entry(ticket, type, book));
+			status = enqueue(ticket, type, book);
+		}
+		journal.force();
+		if (pending() >= batchSize && flusher != null) {
+			flusher.execute(this::flushQuietly);
+		}
+		return status;
+	}
+
+	private BookWriteStatus enqueue(String ticket, Type type, Book book) {
+		Object key = type == Type.CREATE ? ticket : book.getId();
+		Operation queued = pending.get(key);
+		BookWriteStatus status;
+		if (queued != null && queued.type == Type.DELETE && type == Type.UPDATE) {
+			// the book will be gone by the time this update would run
+			status = new BookWriteStatus(ticket, State.FAILED, book.getId(), NOT_FOUND);
+			journal.done(List.of(ticket));
+		} else if (queued != null) {
+			queued.type = type;
+			queued.book = book;
+			queued.tickets.add(ticket);
+			unfinishedTickets++;
+			status = new BookWriteStatus(ticket, State.PENDING, book.getId(), null);
+		} else {
+			pending.put(key, new Operation(type, book, ticket));
+			unfinishedTickets++;
+			status = new BookWriteStatus(ticket, State.PENDING, book.getId(), null);
+		}
+		record(status);
+		return status;
+	}
+
+	/*
+	 * Only the results of finished tickets are evicted, so a ticket can be
+	 * polled as long as its mutation is queued.
+	 */
+	private void record(BookWriteStatus status) {
+		statuses.put(status.getTicket(), status);
+		if (status.getState() != State.PENDING) {
+			finished.add(status.getTicket());
+			while (finished.size() > retainedResults) {
+				statuses.remove(finished.poll());
+			}
+		}
+	}
+
+	private void flushQuietly() {
+		try {
+			flush();
+		} catch (RuntimeException e) {
+			log.error("Could not flush the book write-behind queue", e);
+		}
+	}
+
+	/**
+	 * Writes the queued mutations, one batch at a time, until the queue is
+	 * empty.
+	 */
+	public void flush() {
+		List<Operation> batch;
+		while (!(batch = drain()).isEmpty()) {
+			Map<Operation, BookWriteStatus> results = write(batch);
+			synchronized (lock) {
+				List<String> tickets = new ArrayList<>();
+				results.forEach((operation, result) -> operation.tickets.forEach(ticket -> {
+					record(new BookWriteStatus(ticket, result.getState(), result.getBookId(), result.getError()));
+					tickets.add(ticket);
+				}));
+				inFlight = 0;
+				unfinishedTickets -= tickets.size();
+				journal.done(tickets);
+			}
+			journal.force();
+		}
+	}
+
+	private List<Operation> drain() {
+		synchronized (lock) {
+			List<Operation> batch = new ArrayList<>(Math.min(batchSize, pending.size()));
+			Iterator<Operation> operations = pending.values().iterator();
+			while (operations.hasNext() && batch.size() < batchSize) {
+				batch.add(operations.next());
+				operations.remove();
+			}
+			inFlight = batch.size();
+			return batch;
+		}
+	}
+
+	private Map<Operation, BookWriteStatus> write(List<Operation> batch) {
+		Map<Operation, BookWriteStatus> results = new IdentityHashMap<>();
+		List<Operation> creations = new ArrayList<>();
+		List<Operation> changes = new ArrayList<>();
+		for (Operation operation : batch) {
+			(operation.type == Type.CREATE ? creations : changes).add(operation);
+		}
+
+		if (!creations.isEmpty()) {
+			List<Book> books = new ArrayList<>(creations.size());
+			creations.forEach(operation -> books.add(operation.book));
+			try {
+				List<BookSaveResult> saved = service.saveAll(books);
+				for (int i = 0; i < saved.size(); i++) {
+					BookSaveResult result = saved.get(i);
+					results.put(creations.get(i), result.isSaved() ? done(result.getBook().getId())
+							: failed(null, result.getError()));
+				}
+			} catch (RuntimeException e) {
+				log.error("Could not create {} books", creations.size(), e);
+				creations.forEach(operation -> results.put(operation, failed(null, e.getMessage())));
+			}
+		}
+
+		if (!changes.isEmpty()) {
+			try {
+				Map<Operation, BookWriteStatus> changed = new IdentityHashMap<>();
+				transactionTemplate.executeWithoutResult(transaction -> changes
+						.forEach(operation -> changed.put(operation, apply(operation))));
+				results.putAll(changed);
+			} catch (RuntimeException e) {
+				// a change failed and rolled the batch back, so each change runs on its own
+				changes.forEach(operation -> results.put(operation, applyAlone(operation)));
+			}
+		}
+		return results;
+	}
+
+	private BookWriteStatus apply(Operation operation) {
+		Long id = operation.book.getId();
+		if (operation.type == Type.DELETE) {
+			service.delete(id);
+			return done(id);
+		}
+		return service.update(operation.book).isPresent() ? done(id) : failed(id, NOT_FOUND);
+	}
+
+	private BookWriteStatus applyAlone(Operation operation) {
+		Long id = operation.book.getId();
+		try {
+			return apply(operation);
+		} catch (EmptyResultDataAccessException e) {
+			return failed(id, NOT_FOUND);
+		} catch (BusinessException e) {
+			return failed(id, e.getMessage());
+		} catch (RuntimeException e) {
+			log.error("Could not write {} of book {}", operation.type, id, e);
+			return failed(id, e.getMessage());
+		}
+	}
+
+	private static BookWriteStatus done(Long id) {
+		return new BookWriteStatus(null, State.DONE, id, null);
+	}
+
+	private static BookWriteStatus failed(Long id, String error) {
+		return new BookWriteStatus(null, State.FAILED, id, error);
+	}
+
+	private static WriteBehindJournal.Entry entry(String ticket, Type type, Book book) {
+		WriteBehindJournal.Entry entry = new WriteBehindJournal.Entry();
+		entry.ticket = ticket;
+		entry.type = type.name();
+		entry.id = book.getId();
+		entry.title = book.getTitle();
+		entry.author = book.getAuthor();
+		entry.isbn = book.getIsbn();
+		return entry;
+	}
+
+	private static class Operation {
+
+		private Type type;
+		private Book book;
+		private final List<String> tickets = new ArrayList<>(1);
+
+		Operation(Type type, Book book, String ticket) {
+			this.type = type;
+			this.book = book;
+			this.tickets.add(ticket);
+		}
+
+	}
+
+}
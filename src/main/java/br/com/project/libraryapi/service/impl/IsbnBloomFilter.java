@@ -0,0 +1,94 @@
+package br.com.project.libraryapi.service.impl;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bloom filter of the isbns in use, sized for about 1% false positives up to
+ * its capacity. An isbn it does not contain is certainly free, so checking it
+ * takes no query. Isbns can not be removed, so the ones of deleted books only
+ * cost a query until the filter is rebuilt. Safe for concurrent use.
+ */
+public class IsbnBloomFilter {
+
+	private static final int HASHES = 7;
+	private static final double BITS_PER_ISBN = 9.6;
+
+	private final long capacity;
+	private final long bitCount;
+	private final AtomicLongArray words;
+	private final AtomicLong size = new AtomicLong();
+
+	public IsbnBloomFilter(long capacity) {
+		this.capacity = capacity;
+		this.bitCount = Math.max(64, (long) Math.ceil(capacity * BITS_PER_ISBN));
+		this.words = new AtomicLongArray((int) ((bitCount + 63) / 64));
+	}
+
+	public boolean mightContain(String isbn) {
+		long hash = hash(isbn);
+		int first = (int) hash;
+		int second = (int) (hash >>> 32);
+		for (int i = 0; i < HASHES; i++) {
+			long bit = Integer.toUnsignedLong(first + i * second) % bitCount;
+			if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Adds the isbn, and returns false once the filter holds more isbns than
+	 * it was sized for, as its false positive rate then grows. An isbn whose
+	 * bits were all set already, as it was added before, is not counted again.
+	 */
+	public boolean add(String isbn) {
+		long hash = hash(isbn);
+		int first = (int) hash;
+		int second = (int) (hash >>> 32);
+		boolean added = false;
+		for (int i = 0; i < HASHES; i++) {
+			long bit = Integer.toUnsignedLong(first + i * second) % bitCount;
+			int word = (int) (bit >>> 6);
+			long mask = 1L << bit;
+			long current;
+			while (((current = words.get(word)) & mask) == 0) {
+				if (words.compareAndSet(word, current, current | mask)) {
+					added = true;
+					break;
+				}
+				// another isbn set a bit of the same word meanwhile
+			}
+		}
+		return (added ? size.incrementAndGet() : size.get()) <= capacity;
+	}
+
+	public long size() {
+		return size.get();
+	}
+
+	public long capacity() {
+		return capacity;
+	}
+
+	/*
+	 * 64-bit FNV-1a of the utf-8 bytes, with the murmur3 finalizer to spread
+	 * the bits of the short and similar isbns.
+	 */
+	private static long hash(String isbn) {
+		long hash = 0xcbf29ce484222325L;
+		for (byte b : isbn.getBytes(StandardCharsets.UTF_8)) {
+			hash ^= b;
+			hash *= 0x100000001b3L;
+		}
+		hash ^= hash >>> 33;
+		hash *= 0xff51afd7ed558ccdL;
+		hash ^= hash >>> 33;
+		hash *= 0xc4ceb9fe1a85ec53L;
+		hash ^= hash >>> 33;
+		return hash;
+	}
+
+}
@@ -0,0 +1,214 @@
+package br.com.project.libraryapi.service.impl;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Append-only record of the mutations accepted by the write-behind queue. A
+ * mutation is forced to disk before the client is answered, and a done line
+ * follows once it reached the database. Mutations without a done line are
+ * replayed on startup, so after a crash one may be written twice, but none is
+ * lost.
+ * <p>
+ * The journal is truncated once every mutation is done, and rewritten with
+ * only the unfinished ones when finished lines dominate it, so it stays in
+ * proportion to the queue even when the queue never drains.
+ */
+class WriteBehindJournal implements Closeable {
+
+	/* fewer lines are not worth rewriting the journal for */
+	static final int COMPACTION_LINES = 1000;
+
+	private final Path path;
+	private final ObjectMapper objectMapper;
+	private final List<Entry> unfinished;
+	/* entries without a done line, by ticket */
+	private final Map<String, Entry> live;
+	private volatile FileChannel channel;
+	private int lines;
+
+	WriteBehindJournal(Path path, ObjectMapper objectMapper) throws IOException {
+		this.path = path;
+		this.objectMapper = objectMapper;
+		Path parent = path.toAbsolutePath().getParent();
+		if (parent != null) {
+			Files.createDirectories(parent);
+		}
+		this.live = Files.exists(path) ? read(path) : new LinkedHashMap<>();
+		this.unfinished = new ArrayList<>(live.values());
+		this.channel = open();
+	}
+
+	private Map<String, Entry> read(Path path) throws IOException {
+		Map<String, Entry> entries = new LinkedHashMap<>();
+		try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				lines++;
+				Entry entry;
+				try {
+					entry = objectMapper.readValue(line, Entry.class);
+				} catch (JsonProcessingException e) {
+					// the tail of a line cut by a crash
+					continue;
+				}
+				if (entry.done) {
+					entries.remove(entry.ticket);
+				} else {
+					entries.put(entry.ticket, entry);
+				}
+			}
+		}
+		return entries;
+	}
+
+	private FileChannel open() throws IOException {
+		return FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+	}
+
+	/**
+	 * Mutations found without a done line when the journal was opened.
+	 */
+	List<Entry> unfinished() {
+		return unfinished;
+	}
+
+	void append(Entry entry) {
+		write(line(entry));
+		live.put(entry.ticket, entry);
+		lines++;
+	}
+
+	void done(Collection<String> tickets) {
+		tickets.forEach(live::remove);
+		if (live.isEmpty()) {
+			clear();
+			return;
+		}
+		if (lines + tickets.size() >= COMPACTION_LINES && lines + tickets.size() > 2 * live.size()) {
+			compact();
+			return;
+		}
+
+		StringBuilder done = new StringBuilder();
+		for (String ticket : tickets) {
+			Entry entry = new Entry();
+			entry.ticket = ticket;
+			entry.done = true;
+			done.append(line(entry));
+		}
+		write(done.toString());
+		lines += tickets.size();
+	}
+
+	/**
+	 * Flushes the appended lines to the device. Callers may force outside of
+	 * the lock serializing appends, so concurrent appends share a sync.
+	 */
+	void force() {
+		FileChannel current = channel;
+		try {
+			current.force(false);
+		} catch (ClosedChannelException e) {
+			if (current == channel) {
+				throw new UncheckedIOException(e);
+			}
+			// compacted meanwhile, and the compacted journal was forced with every unfinished line
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private void clear() {
+		try {
+			channel.truncate(0);
+			lines = 0;
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/*
+	 * The unfinished entries are written to a new file that replaces the
+	 * journal at once, so a crash leaves either the old or the new one.
+	 */
+	private void compact() {
+		Path compacted = path.resolveSibling(path.getFileName() + ".compacting");
+		StringBuilder entries = new StringBuilder();
+		live.values().forEach(entry -> entries.append(line(entry)));
+		try {
+			try (FileChannel file = FileChannel.open(compacted, StandardOpenOption.CREATE,
+					StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+				ByteBuffer buffer = ByteBuffer.wrap(entries.toString().getBytes(StandardCharsets.UTF_8));
+				while (buffer.hasRemaining()) {
+					file.write(buffer);
+				}
+				file.force(false);
+			}
+			Files.move(compacted, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+			FileChannel previous = channel;
+			channel = open();
+			previous.close();
+			lines = live.size();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private String line(Entry entry) {
+		try {
+			return objectMapper.writeValueAsString(entry) + '\n';
+		} catch (JsonProcessingException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private void write(String lines) {
+		ByteBuffer buffer = ByteBuffer.wrap(lines.getBytes(StandardCharsets.UTF_8));
+		try {
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	@JsonInclude(JsonInclude.Include.NON_DEFAULT)
+	static class Entry {
+
+		public String ticket;
+		public String type;
+		public Long id;
+		public String title;
+		public String author;
+		public String isbn;
+		public boolean done;
+
+	}
+
+}
@@ -1,13 +1,169 @@
 package br.com.project.libraryapi;
 
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+
 import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import br.com.project.libraryapi.config.PersistenceEndpoint;
+import br.com.project.libraryapi.config.SearchIndexEndpoint;
+import br.com.project.libraryapi.exception.BookChangesPurgedException;
+import br.com.project.libraryapi.model.entity.Book;
+import br.com.project.libraryapi.model.entity.BookChange;
+import br.com.project.libraryapi.model.repository.BookView;
+import br.com.project.libraryapi.service.BookService;
+import io.micrometer.core.instrument.MeterRegistry;
 
 @SpringBootTest
+@ActiveProfiles("test")
 class LibraryApiApplicationTests {
 
+	@Autowired
+	BookService service;
+
+	@Autowired
+	MeterRegistry registry;
+
+	@Autowired
+	PersistenceEndpoint persistenceEndpoint;
+
+	@Autowired
+	PlatformTransactionManager transactionManager;
+
+	@Autowired
+	SearchIndexEndpoint searchIndexEndpoint;
+
+	@Autowired
+	JdbcTemplate jdbcTemplate;
+
 	@Test
 	void contextLoads() {
 	}
 
+	@Test
+	void recordsBookServiceTimers() {
+		service.getById(1l);
+
+		assertThat(registry.get("book.service").tag("method", "getById").timer().count()).isEqualTo(1);
+		assertThat(registry.get("spring.data.repository.invocations").tag("method", "findById").timer().count())
+			.isPositive();
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	void reportsPoolAndStatementStatistics() {
+		service.getById(1l);
+		service.getById(1l);
+
+		Map<String, Object> persistence = persistenceEndpoint.persistence();
+		Map<String, Object> pools = (Map<String, Object>) persistence.get("pools");
+		Map<String, Object> pool = (Map<String, Object>) pools.get("library");
+		Map<String, Object> statements = (Map<String, Object>) persistence.get("statements");
+
+		assertThat(pools).containsOnlyKeys("library");
+		assertThat(pool).containsEntry("role", "primary").containsEntry("maximumPoolSize", 10)
+				.containsKeys("active", "idle", "wait");
+		assertThat(statements).containsEntry("statisticsEnabled", true);
+		assertThat((long) statements.get("prepared")).isPositive();
+	}
+
+	@Test
+	void logsBookChangesInOrder() {
+		long after = lastChangeId();
+		Book book = service.save(new Book("Changed book", "Author", "change-1"));
+		service.updateFields(new Book(book.getId(), "Renamed book", null, null));
+		service.delete(book.getId());
+		service.saveAll(Arrays.asList(new Book("Batch book", "Author", "change-2"),
+				new Book("Duplicated book", "Author", "change-2")));
+
+		List<BookChange> changes = service.findChanges(after, 100);
+
+		assertThat(changes).extracting(BookChange::getType).containsExactly(BookChange.Type.CREATE,
+				BookChange.Type.UPDATE, BookChange.Type.DELETE, BookChange.Type.CREATE);
+		assertThat(changes).extracting(BookChange::getTitle).containsExactly("Changed book", "Renamed book",
+				"Renamed book", "Batch book");
+		assertThat(changes.get(1).getVersion()).isEqualTo(1);
+	}
+
+	@Test
+	void numbersChangesInCommitOrder() {
+		long after = lastChangeId();
+		List<BookChange> seen = new TransactionTemplate(transactionManager).execute(transaction -> {
+			service.save(new Book("Slow book", "Author", "change-3"));
+			CompletableFuture.runAsync(() -> service.save(new Book("Fast book", "Author", "change-4"))).join();
+			return CompletableFuture.supplyAsync(() -> service.findChanges(after, 100)).join();
+		});
+
+		assertThat(seen).extracting(BookChange::getTitle).containsExactly("Fast book");
+		assertThat(service.findChanges(seen.get(0).getId(), 100)).extracting(BookChange::getTitle)
+			.containsExactly("Slow book");
+	}
+
+	@Test
+	void numbersConcurrentChangesWithoutGaps() {
+		long after = lastChangeId();
+		List<CompletableFuture<Book>> saves = IntStream.range(0, 8)
+			.mapToObj(i -> CompletableFuture.supplyAsync(
+					() -> service.save(new Book("Parallel book", "Author", "parallel-" + i))))
+			.collect(Collectors.toList());
+		saves.forEach(CompletableFuture::join);
+
+		assertThat(service.findChanges(after, 100)).extracting(BookChange::getId)
+			.containsExactlyElementsOf(LongStream.rangeClosed(after + 1, after + 8).boxed()
+				.collect(Collectors.toList()));
+	}
+
+	@Test
+	void refusesToReadPastPurgedChanges() {
+		long after = lastChangeId();
+		service.save(new Book("Purged book", "Author", "purged-1"));
+		service.save(new Book("Kept book", "Author", "purged-2"));
+		jdbcTemplate.update("delete from book_change where id = ?", after + 1);
+
+		assertThat(catchThrowable(() -> service.findChanges(after, 100)))
+			.isInstanceOf(BookChangesPurgedException.class);
+		assertThat(service.findChanges(after + 1, 100)).extracting(BookChange::getTitle)
+			.containsExactly("Kept book");
+
+		jdbcTemplate.update("delete from book_change where id = ?", after + 2);
+
+		assertThat(catchThrowable(() -> service.findChanges(after + 1, 100)))
+			.isInstanceOf(BookChangesPurgedException.class);
+		assertThat(service.findChanges(after + 2, 100)).isEmpty();
+	}
+
+	@Test
+	void rebuildsTheSearchIndexFromTheDatabase() {
+		searchIndexEndpoint.rebuild().join();
+		jdbcTemplate.update("insert into book (id, title, author, isbn, version) values (900001, 'Unindexed tome',"
+				+ " 'Author', 'reindex-1', 0)");
+		assertThat(service.search("tome", PageRequest.of(0, 10))).isEmpty();
+
+		searchIndexEndpoint.rebuild().join();
+
+		assertThat(service.search("tome", PageRequest.of(0, 10))).extracting(BookView::getId)
+			.containsExactly(900001l);
+		assertThat(searchIndexEndpoint.state()).containsEntry("rebuilding", false).containsEntry("error", null);
+	}
+
+	private long lastChangeId() {
+		List<BookChange> changes = service.findChanges(0, 1000);
+		return changes.isEmpty() ? 0 : changes.get(changes.size() - 1).getId();
+	}
+
 }
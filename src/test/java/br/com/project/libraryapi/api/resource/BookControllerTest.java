@@ -1,10 +1,20 @@
 package br.com.project.libraryapi.api.resource;
 
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 import org.hamcrest.Matchers;
 import org.junit.jupiter.api.DisplayName;
@@ -19,17 +29,32 @@ import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
 
 import br.com.project.libraryapi.api.dto.BookDto;
+import br.com.project.libraryapi.exception.BookChangesPurgedException;
+import br.com.project.libraryapi.exception.BusinessException;
 import br.com.project.libraryapi.model.entity.Book;
+import br.com.project.libraryapi.model.entity.BookChange;
+import br.com.project.libraryapi.model.repository.BookView;
+import br.com.project.libraryapi.service.BookCountMode;
+import br.com.project.libraryapi.service.BookCursor;
+import br.com.project.libraryapi.service.BookSaveResult;
 import br.com.project.libraryapi.service.BookService;
 
 @ExtendWith(SpringExtension.class)
@@ -66,6 +91,56 @@ public class BookControllerTest {
 
 	}
 
+	@Test
+	@DisplayName("Should create a batch of books reporting the result of each one.")
+	public void createBooksInBatchTest() throws Exception {
+
+		Book savedBook = new Book(1l, "My book", "Author", "123456");
+		Book duplicatedBook = new Book("Other book", "Author", "123456");
+
+		BDDMockito.given(service.saveAll(Mockito.anyList())).willReturn(Arrays.asList(
+				BookSaveResult.saved(savedBook),
+				BookSaveResult.rejected(duplicatedBook, "Isbn is already in use.")));
+
+		String json = new ObjectMapper().writeValueAsString(Arrays.asList(createNewBookDto(),
+				new BookDto(null, "Other book", "Author", "123456")));
+
+		MockHttpServletRequestBuilder request = MockMvcRequestBuilders.post(BOOK_API.concat("/batch"))
+				.contentType(MediaType.APPLICATION_JSON).accept(MediaType.APPLICATION_JSON).content(json);
+
+		mvc.perform(request).andExpect(status().isOk())
+				.andExpect(jsonPath("$", Matchers.hasSize(2)))
+				.andExpect(jsonPath("[0].id").value(1))
+				.andExpect(jsonPath("[0].status").value("CREATED"))
+				.andExpect(jsonPath("[1].isbn").value("123456"))
+				.andExpect(jsonPath("[1].status").value("REJECTED"))
+				.andExpect(jsonPath("[1].error").value("Isbn is already in use."));
+	}
+
+	@Test
+	@DisplayName("Should reject the batch items missing data without saving them.")
+	public void createInvalidBooksInBatchTest() throws Exception {
+
+		Book savedBook = new Book(1l, "My book", "Author", "123456");
+		BDDMockito.given(service.saveAll(Mockito.anyList())).willReturn(Arrays.asList(BookSaveResult.saved(savedBook)));
+
+		String json = new ObjectMapper().writeValueAsString(Arrays.asList(new BookDto(null, "", null, "654321"),
+				createNewBookDto()));
+
+		MockHttpServletRequestBuilder request = MockMvcRequestBuilders.post(BOOK_API.concat("/batch"))
+				.contentType(MediaType.APPLICATION_JSON).accept(MediaType.APPLICATION_JSON).content(json);
+
+		mvc.perform(request).andExpect(status().isOk())
+				.andExpect(jsonPath("$", Matchers.hasSize(2)))
+				.andExpect(jsonPath("[0].isbn").value("654321"))
+				.andExpect(jsonPath("[0].status").value("REJECTED"))
+				.andExpect(jsonPath("[0].error").value("author must not be empty, title must not be empty"))
+				.andExpect(jsonPath("[1].id").value(1))
+				.andExpect(jsonPath("[1].status").value("CREATED"));
+		Mockito.verify(service).saveAll(Mockito.argThat(books -> books.size() == 1
+				&& "123456".equals(books.get(0).getIsbn())));
+	}
+
 	@Test
 	@DisplayName("Should generate a validation error when there is not enough data to create a book.")
 	public void createInvalidBookTest() throws Exception {
@@ -74,32 +149,32 @@ public class BookControllerTest {
 
 		MockHttpServletRequestBuilder request = MockMvcRequestBuilders.post(BOOK_API)
 				.contentType(MediaType.APPLICATION_JSON).accept(MediaType.APPLICATION_JSON).content(json);
-//		
-//		mvc.perform(request)
-//		.andExpect(status().isBadRequest())
-//		.andExpect(jsonPath("errors", hasSize(3)));
-
-	}
-
-//	@Test
-//	@DisplayName("Should generate a validation error when trying to register a book with isbn already used by another.")
-//	public void createBookWithDuplicatedIsbn() throws Exception {
-//
-//		BookDto dto = createNewBookDto();
-//		String json = new ObjectMapper().writeValueAsString(dto);
-//
-//		String errorMessage = "Isbn is already in use.";
-//
-//		BDDMockito.given(service.save(Mockito.any(Book.class))).willThrow(new BusinessException(errorMessage));
-//
-//		MockHttpServletRequestBuilder request = MockMvcRequestBuilders.post(BOOK_API)
-//				.contentType(MediaType.APPLICATION_JSON).accept(MediaType.APPLICATION_JSON).content(json);
-//
-//		mvc.perform(request).andExpect(status().isBadRequest())
-//				// .andExpect(jsonPath("errors", hasSize(1)))
-//				.andExpect(jsonPath("errors[0]").value(errorMessage));
-//
-//	}
+
+		mvc.perform(request)
+		.andExpect(status().isBadRequest())
+		.andExpect(jsonPath("errors", Matchers.hasSize(3)));
+
+	}
+
+	@Test
+	@DisplayName("Should generate a validation error when trying to register a book with isbn already used by another.")
+	public void createBookWithDuplicatedIsbn() throws Exception {
+
+		BookDto dto = createNewBookDto();
+		String json = new ObjectMapper().writeValueAsString(dto);
+
+		String errorMessage = "Isbn is already in use.";
+
+		BDDMockito.given(service.save(Mockito.any(Book.class))).willThrow(new BusinessException(errorMessage));
+
+		MockHttpServletRequestBuilder request = MockMvcRequestBuilders.post(BOOK_API)
+				.contentType(MediaType.APPLICATION_JSON).accept(MediaType.APPLICATION_JSON).content(json);
+
+		mvc.perform(request).andExpect(status().isBadRequest())
+				.andExpect(jsonPath("errors", Matchers.hasSize(1)))
+				.andExpect(jsonPath("errors[0]").value(errorMessage));
+
+	}
 
 	@Test
 	@DisplayName("Should get informations about a book")
@@ -118,6 +193,59 @@ public class BookControllerTest {
 				.andExpect(jsonPath("isbn").value(createNewBookDto().getIsbn())).andExpect(jsonPath("id").value(id));
 	}
 
+	@Test
+	@DisplayName("Should answer not modified when the book version is unchanged")
+	public void getBookNotModifiedTest() throws Exception {
+		Book book = new Book(1l, "My book", "Author", "123456");
+		book.setVersion(2l);
+		book.setUpdatedAt(Instant.parse("2021-07-01T10:15:30Z"));
+		BDDMockito.given(service.getById(1l)).willReturn(Optional.of(book));
+
+		mvc.perform(MockMvcRequestBuilders.get(BOOK_API.concat("/1")).accept(MediaType.APPLICATION_JSON))
+				.andExpect(status().isOk())
+				.andExpect(header().string(HttpHeaders.ETAG, "\"2\""))
+				.andExpect(header().string(HttpHeaders.LAST_MODIFIED, "Thu, 01 Jul 2021 10:15:30 GMT"));
+
+		mvc.perform(MockMvcRequestBuilders.get(BOOK_API.concat("/1")).header(HttpHeaders.IF_NONE_MATCH, "\"2\""))
+				.andExpect(status().isNotModified())
+				.andExpect(content().string(""));
+
+		mvc.perform(MockMvcRequestBuilders.get(BOOK_API.concat("/1"))
+				.header(HttpHeaders.IF_MODIFIED_SINCE, "Thu, 01 Jul 2021 10:15:30 GMT"))
+				.andExpect(status().isNotModified());
+
+		mvc.perform(MockMvcRequestBuilders.get(BOOK_API.concat("/1")).header(HttpHeaders.IF_NONE_MATCH, "\"1\""))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("version").value(2));
+	}
+
+	@Test
+	@DisplayName("Should look up many books in one request")
+	public void lookupBooksTest() throws Exception {
+		Map<Long, Book> books = new LinkedHashMap<>();
+		books.put(2l, new Book(2l, "Other book", "Author", "654321"));
+		books.put(1l, new Book(1l, "My book", "Author", "123456"));
+		BDDMockito.given(service.getByIds(Arrays.asList(2l, 3l, 1l))).willReturn(books);
+
+		MockHttpServletRequestBuilder request = MockMvcRequestBuilders.post(BOOK_API.concat("/lookup"))
+				.content("[2,3,1]").contentType(MediaType.APPLICATION_JSON).accept(MediaType.APPLICATION_JSON);
+
+		mvc.perform(request).andExpect(status().isOk())
+				.andExpect(jsonPath("content[*].id", Matchers.contains(2, 1)))
+				.andExpect(jsonPath("missing", Matchers.contains(3)));
+	}
+
+	@Test
+	@DisplayName("Should reject a lookup of too many books")
+	public void lookupTooManyBooksTest() throws Exception {
+		BDDMockito.given(service.getByIds(Mockito.anyList())).willThrow(new IllegalArgumentException("Too many"));
+
+		MockHttpServletRequestBuilder request = MockMvcRequestBuilders.post(BOOK_API.concat("/lookup"))
+				.content("[1,2]").contentType(MediaType.APPLICATION_JSON);
+
+		mvc.perform(request).andExpect(status().isBadRequest());
+	}
+
 	@Test
 	@DisplayName("Should return resource not found when a seached book does not exist")
 	public void bookNotFoundTest() throws Exception {
@@ -160,13 +288,12 @@ public class BookControllerTest {
 	public void updateBookTest() throws Exception {
 
 		Long id = 1l;
-		Book bookToBeUpdated = new Book(id, "Old Title", "Old author", createNewBookDto().getIsbn());
 		Book book = new Book(id, "My book", "Author", "123456");
+		book.setVersion(1l);
 
 		String json = new ObjectMapper().writeValueAsString(createNewBookDto());
 
-		BDDMockito.given(service.getById(id)).willReturn(Optional.of(bookToBeUpdated));
-		BDDMockito.given(service.update(Mockito.any(Book.class))).willReturn(book);
+		BDDMockito.given(service.update(Mockito.any(Book.class))).willReturn(Optional.of(book));
 
 		MockHttpServletRequestBuilder request = MockMvcRequestBuilders.put(BOOK_API.concat("/" + id)).content(json)
 				.accept(MediaType.APPLICATION_JSON).contentType(MediaType.APPLICATION_JSON);
@@ -174,9 +301,11 @@ public class BookControllerTest {
 		mvc.perform(request).andExpect(status().isOk())
 				.andExpect(jsonPath("title").value(createNewBookDto().getTitle()))
 				.andExpect(jsonPath("author").value(createNewBookDto().getAuthor()))
-				.andExpect(jsonPath("isbn").value(bookToBeUpdated.getIsbn()))
-				.andExpect(jsonPath("id").value(bookToBeUpdated.getId()));
+				.andExpect(jsonPath("isbn").value(book.getIsbn()))
+				.andExpect(jsonPath("id").value(id))
+				.andExpect(jsonPath("version").value(1));
 
+		Mockito.verify(service, Mockito.never()).getById(Mockito.anyLong());
 	}
 
 	@Test
@@ -185,7 +314,7 @@ public class BookControllerTest {
 
 		String json = new ObjectMapper().writeValueAsString(createNewBookDto());
 
-		BDDMockito.given(service.getById(Mockito.anyLong())).willReturn(Optional.empty());
+		BDDMockito.given(service.update(Mockito.any(Book.class))).willReturn(Optional.empty());
 
 		MockHttpServletRequestBuilder request = MockMvcRequestBuilders.put(BOOK_API.concat("/" + 1l)).content(json)
 				.accept(MediaType.APPLICATION_JSON).contentType(MediaType.APPLICATION_JSON);
@@ -194,16 +323,68 @@ public class BookControllerTest {
 
 	}
 
+	@Test
+	@DisplayName("Should update only the informed fields of a book")
+	public void patchBookTest() throws Exception {
+
+		Book book = new Book(1l, "New title", "Author", "123456");
+		book.setVersion(3l);
+
+		BDDMockito.given(service.updateFields(Mockito.any(Book.class))).willReturn(Optional.of(book));
+
+		MockHttpServletRequestBuilder request = MockMvcRequestBuilders.patch(BOOK_API.concat("/1"))
+				.content("{\"title\":\"New title\",\"version\":2}")
+				.accept(MediaType.APPLICATION_JSON).contentType(MediaType.APPLICATION_JSON);
+
+		mvc.perform(request).andExpect(status().isOk())
+				.andExpect(jsonPath("title").value("New title"))
+				.andExpect(jsonPath("author").value("Author"))
+				.andExpect(jsonPath("version").value(3));
+
+		Mockito.verify(service).updateFields(Mockito.argThat(changes -> changes.getId() == 1l
+				&& changes.getAuthor() == null && changes.getVersion() == 2l));
+	}
+
+	@Test
+	@DisplayName("Should return bad request when a field present in the patch is invalid")
+	public void patchInvalidBookTest() throws Exception {
+
+		MockHttpServletRequestBuilder request = MockMvcRequestBuilders.patch(BOOK_API.concat("/1"))
+				.content("{\"title\":\"\",\"isbn\":\"\"}")
+				.accept(MediaType.APPLICATION_JSON).contentType(MediaType.APPLICATION_JSON);
+
+		mvc.perform(request).andExpect(status().isBadRequest())
+				.andExpect(jsonPath("errors", Matchers.hasSize(2)));
+
+		Mockito.verify(service, Mockito.never()).updateFields(Mockito.any(Book.class));
+	}
+
+	@Test
+	@DisplayName("Should return conflict when the book was changed by another request")
+	public void patchStaleBookTest() throws Exception {
+
+		BDDMockito.given(service.updateFields(Mockito.any(Book.class)))
+				.willThrow(new ObjectOptimisticLockingFailureException(Book.class, 1l));
+
+		MockHttpServletRequestBuilder request = MockMvcRequestBuilders.patch(BOOK_API.concat("/1"))
+				.content("{\"title\":\"New title\",\"version\":2}")
+				.accept(MediaType.APPLICATION_JSON).contentType(MediaType.APPLICATION_JSON);
+
+		mvc.perform(request).andExpect(status().isConflict())
+				.andExpect(jsonPath("errors", Matchers.hasSize(1)));
+	}
+
 	@Test
 	@DisplayName("Should filter books")
 	public void findBookTest() throws Exception {
 
 		Long id = 1l;
-		Book book = new Book(id, "My book", "Author", "123456");
+		BookView book = new BookView(id, "My book", "Author", "123456", 0l);
 
 
-		BDDMockito.given(service.find(Mockito.any(Book.class), Mockito.any(Pageable.class)))
-				.willReturn(new PageImpl<Book>(Arrays.asList(book), PageRequest.of(0, 100), 1));
+		BDDMockito.given(service.find(Mockito.any(Book.class), Mockito.any(Pageable.class),
+				Mockito.eq(BookCountMode.EXACT)))
+				.willReturn(new PageImpl<BookView>(Arrays.asList(book), PageRequest.of(0, 100), 1));
 
 		String queryString = String.format("?title=%s&author=%s&page=0&size=100",
 				book.getTitle(), book.getAuthor());
@@ -213,6 +394,7 @@ public class BookControllerTest {
 		
 		mvc.perform(request)
 			.andExpect(status().isOk())
+			.andExpect(header().string(BookController.TOTAL_PRECISION, "exact"))
 			.andExpect(jsonPath("content", Matchers.hasSize(1)))
 			.andExpect(jsonPath("totalElements").value(1))
 			.andExpect(jsonPath("pageable.pageSize").value(100))
@@ -220,6 +402,278 @@ public class BookControllerTest {
 
 	}
 
+	@Test
+	@DisplayName("Should filter books with a capped count and tell the total is a lower bound")
+	public void findBookCappedCountTest() throws Exception {
+
+		BDDMockito.given(service.find(Mockito.any(Book.class), Mockito.any(Pageable.class),
+				Mockito.eq(BookCountMode.CAPPED)))
+				.willReturn(new PageImpl<BookView>(Arrays.asList(new BookView(1l, "My book", "Author", "123456", 0l)),
+						PageRequest.of(0, 1), BookCountMode.CAP + 1));
+
+		mvc.perform(MockMvcRequestBuilders.get(BOOK_API.concat("?title=book&size=1&count=capped")))
+			.andExpect(status().isOk())
+			.andExpect(header().string(BookController.TOTAL_PRECISION, "at-least"))
+			.andExpect(jsonPath("totalElements").value(BookCountMode.CAP + 1));
+
+		BDDMockito.given(service.find(Mockito.any(Book.class), Mockito.eq(PageRequest.of(60, 20)),
+				Mockito.eq(BookCountMode.CAPPED)))
+				.willReturn(new PageImpl<BookView>(Collections.nCopies(20, new BookView(1l, "My book", "Author",
+						"123456", 0l)), PageRequest.of(60, 20), 1220));
+
+		mvc.perform(MockMvcRequestBuilders.get(BOOK_API.concat("?title=book&page=60&size=20&count=capped")))
+			.andExpect(status().isOk())
+			.andExpect(header().string(BookController.TOTAL_PRECISION, "exact"));
+
+		mvc.perform(MockMvcRequestBuilders.get(BOOK_API.concat("?count=approximately")))
+			.andExpect(status().isBadRequest());
+	}
+
+	@Test
+	@DisplayName("Should filter books in the compact representations")
+	public void findBookCompactTest() throws Exception {
+
+		BDDMockito.given(service.find(Mockito.any(Book.class), Mockito.any(Pageable.class),
+				Mockito.eq(BookCountMode.EXACT)))
+				.willReturn(new PageImpl<BookView>(Arrays.asList(new BookView(1l, "My book", "Author", "123456", 0l)),
+						PageRequest.of(0, 20), 1));
+
+		mvc.perform(MockMvcRequestBuilders.get(BOOK_API).accept(BookController.PAGE_JSON_VALUE))
+			.andExpect(status().isOk())
+			.andExpect(content().contentTypeCompatibleWith(BookController.PAGE_JSON_VALUE))
+			.andExpect(content().json("{\"content\":[{\"id\":1,\"title\":\"My book\",\"author\":\"Author\","
+					+ "\"isbn\":\"123456\",\"version\":0}],\"page\":0,\"size\":20,\"totalElements\":1}", true));
+
+		byte[] smile = mvc.perform(MockMvcRequestBuilders.get(BOOK_API).accept(BookController.SMILE_VALUE))
+			.andExpect(status().isOk())
+			.andExpect(content().contentTypeCompatibleWith(BookController.SMILE_VALUE))
+			.andReturn().getResponse().getContentAsByteArray();
+		assertThat(new ObjectMapper(new SmileFactory()).readTree(smile).at("/content/0/title").asText())
+			.isEqualTo("My book");
+
+		byte[] cbor = mvc.perform(MockMvcRequestBuilders.get(BOOK_API).accept(MediaType.APPLICATION_CBOR))
+			.andExpect(status().isOk())
+			.andReturn().getResponse().getContentAsByteArray();
+		assertThat(new ObjectMapper(new CBORFactory()).readTree(cbor).at("/totalElements").asLong()).isEqualTo(1);
+
+		mvc.perform(MockMvcRequestBuilders.get(BOOK_API).accept(MediaType.ALL))
+			.andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+			.andExpect(jsonPath("pageable.pageSize").value(20));
+	}
+
+	@Test
+	@DisplayName("Should tag each representation of a page apart")
+	public void findBookRepresentationsEtagTest() throws Exception {
+
+		BDDMockito.given(service.find(Mockito.any(Book.class), Mockito.any(Pageable.class),
+				Mockito.eq(BookCountMode.EXACT)))
+				.willReturn(new PageImpl<BookView>(Arrays.asList(new BookView(1l, "My book", "Author", "123456", 0l)),
+						PageRequest.of(0, 20), 1));
+
+		List<String> etags = new ArrayList<>();
+		for (String accept : Arrays.asList(MediaType.APPLICATION_JSON_VALUE, BookController.PAGE_JSON_VALUE,
+				BookController.SMILE_VALUE, MediaType.APPLICATION_CBOR_VALUE)) {
+			etags.add(mvc.perform(MockMvcRequestBuilders.get(BOOK_API).header(HttpHeaders.ACCEPT, accept))
+				.andExpect(status().isOk())
+				.andExpect(header().string(HttpHeaders.VARY, Matchers.containsString(HttpHeaders.ACCEPT)))
+				.andExpect(header().string(HttpHeaders.VARY, Matchers.containsString(HttpHeaders.ACCEPT_ENCODING)))
+				.andReturn().getResponse().getHeader(HttpHeaders.ETAG));
+		}
+		assertThat(etags).doesNotHaveDuplicates();
+
+		mvc.perform(MockMvcRequestBuilders.get(BOOK_API).accept(MediaType.APPLICATION_CBOR)
+				.header(HttpHeaders.IF_NONE_MATCH, etags.get(2)))
+			.andExpect(status().isOk());
+		mvc.perform(MockMvcRequestBuilders.get(BOOK_API).accept(MediaType.APPLICATION_CBOR)
+				.header(HttpHeaders.IF_NONE_MATCH, etags.get(3)))
+			.andExpect(status().isNotModified());
+	}
+
+	@Test
+	@DisplayName("Should search books by text")
+	public void searchBooksTest() throws Exception {
+
+		BookView book = new BookView(1l, "My book", "Author", "123456", 0l);
+		BDDMockito.given(service.search(Mockito.eq("my boo"), Mockito.any(Pageable.class)))
+				.willReturn(new PageImpl<BookView>(Arrays.asList(book), PageRequest.of(0, 20), 1));
+
+		MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+				.get(BOOK_API.concat("/search?q=my boo")).accept(MediaType.APPLICATION_JSON);
+
+		mvc.perform(request)
+			.andExpect(status().isOk())
+			.andExpect(jsonPath("content", Matchers.hasSize(1)))
+			.andExpect(jsonPath("content[0].title").value("My book"))
+			.andExpect(jsonPath("totalElements").value(1));
+	}
+
+	@Test
+	@DisplayName("Should answer not modified when the search results are unchanged")
+	public void searchBooksNotModifiedTest() throws Exception {
+
+		BDDMockito.given(service.search(Mockito.eq("my boo"), Mockito.any(Pageable.class)))
+				.willReturn(new PageImpl<BookView>(Arrays.asList(new BookView(1l, "My book", "Author", "123456", 0l)),
+						PageRequest.of(0, 20), 1));
+
+		String etag = mvc.perform(MockMvcRequestBuilders.get(BOOK_API.concat("/search?q=my boo")))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+		mvc.perform(MockMvcRequestBuilders.get(BOOK_API.concat("/search?q=my boo"))
+				.header(HttpHeaders.IF_NONE_MATCH, etag))
+				.andExpect(status().isNotModified());
+
+		BDDMockito.given(service.search(Mockito.eq("my boo"), Mockito.any(Pageable.class)))
+				.willReturn(new PageImpl<BookView>(Arrays.asList(new BookView(1l, "My book", "Author", "123456", 1l)),
+						PageRequest.of(0, 20), 1));
+		mvc.perform(MockMvcRequestBuilders.get(BOOK_API.concat("/search?q=my boo"))
+				.header(HttpHeaders.IF_NONE_MATCH, etag))
+				.andExpect(status().isOk());
+	}
+
+	@Test
+	@DisplayName("Should scroll books returning the cursor of the next slice")
+	public void scrollBooksTest() throws Exception {
+
+		Book book = new Book(1l, "My book", "Author", "123456");
+		BDDMockito.given(service.findAfter(Mockito.any(Book.class), Mockito.any(), Mockito.any(Pageable.class)))
+				.willReturn(new SliceImpl<>(Arrays.asList(book), PageRequest.of(0, 1, Sort.by("id")), true));
+
+		MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+				.get(BOOK_API.concat("/scroll?author=Author&size=1")).accept(MediaType.APPLICATION_JSON);
+
+		mvc.perform(request)
+			.andExpect(status().isOk())
+			.andExpect(jsonPath("content", Matchers.hasSize(1)))
+			.andExpect(jsonPath("hasNext").value(true))
+			.andExpect(jsonPath("next").value(BookCursor.after(book, Sort.Order.asc("id")).encode()))
+			.andExpect(jsonPath("totalElements").doesNotExist());
+	}
+
+	@Test
+	@DisplayName("Should return bad request when the scroll cursor is invalid")
+	public void scrollInvalidCursorTest() throws Exception {
+
+		MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+				.get(BOOK_API.concat("/scroll?after=not-a-cursor")).accept(MediaType.APPLICATION_JSON);
+
+		mvc.perform(request).andExpect(status().isBadRequest());
+	}
+
+	@Test
+	@DisplayName("Should export the catalog as newline delimited json")
+	public void exportNdjsonTest() throws Exception {
+
+		mockExport(new BookView(1l, "My book", "Author", "123456", null),
+				new BookView(2l, "Other book", "Author", "654321", null));
+
+		MockHttpServletRequestBuilder request = MockMvcRequestBuilders.get(BOOK_API.concat("/export"));
+
+		mvc.perform(request)
+			.andExpect(status().isOk())
+			.andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON))
+			.andExpect(content().string(
+					"{\"id\":1,\"title\":\"My book\",\"author\":\"Author\",\"isbn\":\"123456\"}\n"
+					+ "{\"id\":2,\"title\":\"Other book\",\"author\":\"Author\",\"isbn\":\"654321\"}\n"));
+	}
+
+	@Test
+	@DisplayName("Should export an empty catalog as an empty body")
+	public void exportEmptyNdjsonTest() throws Exception {
+
+		mockExport();
+
+		mvc.perform(MockMvcRequestBuilders.get(BOOK_API.concat("/export")))
+			.andExpect(status().isOk())
+			.andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON))
+			.andExpect(content().string(""));
+	}
+
+	@Test
+	@DisplayName("Should export the catalog as csv")
+	public void exportCsvTest() throws Exception {
+
+		mockExport(new BookView(1l, "My book, 2nd edition", "Author", "123456", 0l));
+
+		MockHttpServletRequestBuilder request = MockMvcRequestBuilders.get(BOOK_API.concat("/export?format=csv"));
+
+		mvc.perform(request)
+			.andExpect(status().isOk())
+			.andExpect(content().contentTypeCompatibleWith("text/csv"))
+			.andExpect(content().string("id,title,author,isbn\n1,\"My book, 2nd edition\",Author,123456\n"));
+	}
+
+	@Test
+	@DisplayName("Should return bad request when the export format is not supported")
+	public void exportInvalidFormatTest() throws Exception {
+
+		MockHttpServletRequestBuilder request = MockMvcRequestBuilders.get(BOOK_API.concat("/export?format=xml"));
+
+		mvc.perform(request).andExpect(status().isBadRequest());
+	}
+
+	@SuppressWarnings("unchecked")
+	private void mockExport(BookView... books) {
+		BDDMockito.willAnswer(invocation -> {
+			Consumer<BookView> action = invocation.getArgument(0);
+			Arrays.asList(books).forEach(action);
+			return null;
+		}).given(service).export(Mockito.any(Consumer.class));
+	}
+
+	@Test
+	@DisplayName("Should return the book changes after the informed one and where to continue")
+	public void changesTest() throws Exception {
+		BDDMockito.given(service.findChanges(5, 100)).willReturn(Arrays.asList(change(6, BookChange.Type.UPDATE),
+				change(7, BookChange.Type.DELETE)));
+
+		mvc.perform(MockMvcRequestBuilders.get(BOOK_API + "/changes?since=5").accept(MediaType.APPLICATION_JSON))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("changes", Matchers.hasSize(2)))
+				.andExpect(jsonPath("changes[0].type").value("UPDATE"))
+				.andExpect(jsonPath("changes[0].bookId").value(1))
+				.andExpect(jsonPath("changes[1].type").value("DELETE"))
+				.andExpect(jsonPath("next").value(7));
+	}
+
+	@Test
+	@DisplayName("Should stream the book changes after the last event id as server-sent events")
+	public void streamChangesTest() throws Exception {
+		BDDMockito.given(service.findChanges(Mockito.anyLong(), Mockito.anyInt())).willReturn(Collections.emptyList());
+		BDDMockito.given(service.findChanges(5, BookChangeController.STREAM_PAGE_SIZE))
+				.willReturn(Collections.singletonList(change(6, BookChange.Type.CREATE)));
+
+		MvcResult result = mvc.perform(MockMvcRequestBuilders.get(BOOK_API + "/changes")
+				.accept(MediaType.TEXT_EVENT_STREAM)
+				.header("Last-Event-ID", "5"))
+				.andReturn();
+
+		for (int i = 0; i < 50 && !result.getResponse().getContentAsString().contains("data:"); i++) {
+			Thread.sleep(100);
+		}
+		assertThat(result.getResponse().getContentAsString()).contains("id:6\n", "event:CREATE\n",
+				"\"isbn\":\"123456\"");
+	}
+
+	@Test
+	@DisplayName("Should answer gone when the changes after the informed one were purged")
+	public void changesPurgedTest() throws Exception {
+		BDDMockito.given(service.findChanges(Mockito.eq(5l), Mockito.anyInt()))
+				.willThrow(new BookChangesPurgedException(5, 90));
+
+		mvc.perform(MockMvcRequestBuilders.get(BOOK_API + "/changes?since=5").accept(MediaType.APPLICATION_JSON))
+				.andExpect(status().isGone());
+		mvc.perform(MockMvcRequestBuilders.get(BOOK_API + "/changes").accept(MediaType.TEXT_EVENT_STREAM)
+				.header("Last-Event-ID", "5"))
+				.andExpect(status().isGone());
+	}
+
+	private static BookChange change(long id, BookChange.Type type) {
+		BookChange change = new BookChange(type, new Book(1l, "My book", "Author", "123456"));
+		ReflectionTestUtils.setField(change, "id", id);
+		return change;
+	}
+
 	private BookDto createNewBookDto() {
 		return new BookDto(1l, "My book", "Author", "123456");
 	}
@@ -0,0 +1,53 @@
+package br.com.project.libraryapi.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import br.com.project.libraryapi.LibraryApiApplication;
+import br.com.project.libraryapi.model.entity.Book;
+import br.com.project.libraryapi.service.BookService;
+
+/**
+ * Boots the application with its production configuration, except for an
+ * embedded H2 database and an in-memory search index of its own. Writes do
+ * not wait for the index commit, so they measure the database alone; a search
+ * run right after a write may not see it yet.
+ */
+final class BenchmarkApplication {
+
+	static final int CATALOG_SIZE = 10_000;
+
+	private BenchmarkApplication() {}
+
+	static ConfigurableApplicationContext start(WebApplicationType webApplicationType) {
+		System.setProperty("spring.devtools.restart.enabled", "false");
+		return new SpringApplicationBuilder(LibraryApiApplication.class)
+				.web(webApplicationType)
+				.logStartupInfo(false)
+				.run("--server.port=0",
+						"--logging.level.root=warn",
+						"--spring.datasource.url=jdbc:h2:mem:benchmark-" + UUID.randomUUID(),
+						"--spring.jpa.properties.hibernate.search.backend.directory.type=local-heap",
+						"--spring.jpa.properties.hibernate.search.automatic_indexing.synchronization.strategy=async",
+						"--library.traffic.rate-limit.enabled=false",
+						"--library.traffic.concurrency.enabled=false");
+	}
+
+	/**
+	 * Loads {@link #CATALOG_SIZE} books and returns the id of one of them.
+	 */
+	static Long seed(ConfigurableApplicationContext context) {
+		List<Book> books = new ArrayList<>(CATALOG_SIZE);
+		for (int i = 0; i < CATALOG_SIZE; i++) {
+			books.add(new Book("Book " + i, "Author " + (i % 100), "seed-" + i));
+		}
+		context.getBean(BookService.class).saveAll(books);
+		return books.get(CATALOG_SIZE / 2).getId();
+	}
+
+}
@@ -0,0 +1,77 @@
+package br.com.project.libraryapi.benchmark;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+/**
+ * Full round trips through the MVC stack and BookController: argument
+ * binding, service, mapping and JSON serialization.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BookControllerBenchmark {
+
+	private ConfigurableApplicationContext context;
+	private MockMvc mvc;
+	private Long bookId;
+	private AtomicLong isbns = new AtomicLong();
+
+	@Setup
+	public void setUp() {
+		context = BenchmarkApplication.start(WebApplicationType.SERVLET);
+		mvc = MockMvcBuilders.webAppContextSetup((WebApplicationContext) context).build();
+		bookId = BenchmarkApplication.seed(context);
+	}
+
+	@TearDown
+	public void tearDown() {
+		context.close();
+	}
+
+	@Benchmark
+	public String createBook() throws Exception {
+		String json = "{\"title\":\"Benchmark book\",\"author\":\"Benchmark author\",\"isbn\":\"bench-"
+				+ isbns.incrementAndGet() + "\"}";
+		return mvc.perform(post("/api/books").contentType(MediaType.APPLICATION_JSON).content(json))
+				.andReturn().getResponse().getContentAsString();
+	}
+
+	@Benchmark
+	public String getBook() throws Exception {
+		return mvc.perform(get("/api/books/{id}", bookId).accept(MediaType.APPLICATION_JSON))
+				.andReturn().getResponse().getContentAsString();
+	}
+
+	@Benchmark
+	public String findBooks() throws Exception {
+		return mvc.perform(get("/api/books").param("author", "author 42").param("size", "20")
+				.accept(MediaType.APPLICATION_JSON))
+				.andReturn().getResponse().getContentAsString();
+	}
+
+}
@@ -0,0 +1,107 @@
+package br.com.project.libraryapi.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.persistence.EntityManager;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Root;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import br.com.project.libraryapi.model.entity.Book;
+import br.com.project.libraryapi.model.repository.BookRepository;
+import br.com.project.libraryapi.model.repository.BookSpecifications;
+import br.com.project.libraryapi.model.repository.BookView;
+
+/**
+ * The filtered listing with the JPQL prepared per filter shape against the
+ * criteria query it replaced, which was rendered on every call. Run with the
+ * gc profiler of the benchmark profile to compare allocation rates. The
+ * filter includes the id, so the database work stays small next to the cost
+ * of building the query.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BookFilterBenchmark {
+
+	private static final PageRequest PAGE = PageRequest.of(0, 20, Sort.by("title"));
+
+	private ConfigurableApplicationContext context;
+	private BookRepository repository;
+	private EntityManager entityManager;
+	private TransactionTemplate readOnly;
+	private Book filter;
+
+	@Setup
+	public void setUp() {
+		context = BenchmarkApplication.start(WebApplicationType.NONE);
+		repository = context.getBean(BookRepository.class);
+		entityManager = context.getBean(EntityManager.class);
+		readOnly = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+		readOnly.setReadOnly(true);
+		filter = new Book(BenchmarkApplication.seed(context), "book", "author", null);
+	}
+
+	@TearDown
+	public void tearDown() {
+		context.close();
+	}
+
+	@Benchmark
+	public Page<BookView> preparedJpql() {
+		return readOnly.execute(transaction -> repository.findViews(filter, PAGE));
+	}
+
+	@Benchmark
+	public Page<BookView> criteria() {
+		return readOnly.execute(transaction -> {
+			CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+			CriteriaQuery<BookView> query = cb.createQuery(BookView.class);
+			Root<Book> root = query.from(Book.class);
+			query.select(cb.construct(BookView.class, root.get("id"), root.get("title"), root.get("author"),
+					root.get("isbn"), root.get("version")));
+			query.where(BookSpecifications.matching(filter).toPredicate(root, query, cb));
+			query.orderBy(QueryUtils.toOrders(PAGE.getSort(), root, cb));
+			List<BookView> views = entityManager.createQuery(query)
+					.setFirstResult((int) PAGE.getOffset())
+					.setMaxResults(PAGE.getPageSize())
+					.getResultList();
+			return PageableExecutionUtils.getPage(views, PAGE, this::criteriaCount);
+		});
+	}
+
+	private long criteriaCount() {
+		CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+		CriteriaQuery<Long> query = cb.createQuery(Long.class);
+		Root<Book> root = query.from(Book.class);
+		query.select(cb.count(root));
+		query.where(BookSpecifications.matching(filter).toPredicate(root, query, cb));
+		return entityManager.createQuery(query).getSingleResult();
+	}
+
+}
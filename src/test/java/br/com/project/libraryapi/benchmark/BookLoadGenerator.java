@@ -0,0 +1,403 @@
+package br.com.project.libraryapi.benchmark;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpRequest.BodyPublishers;
+import java.net.http.HttpResponse;
+import java.net.http.HttpResponse.BodyHandlers;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+/**
+ * Open-loop load against the books API: requests are sent at a fixed rate
+ * whatever the response times, and each latency is measured from the moment
+ * its request was due, so a stalled server shows in the percentiles instead
+ * of slowing the load down. Without {@code load.url} the application is
+ * started in this JVM, on embedded H2.
+ *
+ * <pre>
+ * ./mvnw -Ploadtest -DskipTests verify [-Dload.rate=500] [-Dload.duration=60] [-Dload.url=http://host:8080]
+ *     [-Dload.mix=get=50,search=15,find=10,create=15,update=7,delete=3]
+ * </pre>
+ *
+ * A remote application applies its rate and concurrency limits to the
+ * generator like to any other client, and the rejected requests are reported
+ * with their 429 and 503 statuses.
+ */
+public final class BookLoadGenerator {
+
+	private static final String DEFAULT_MIX = "get=50,search=15,find=10,create=15,update=7,delete=3";
+	private static final String[] WORDS = { "book", "author", "42", "7", "load" };
+	private static final int SEED_BOOKS = 1000;
+	private static final int SEED_BATCH = 100;
+
+	private final HttpClient client = HttpClient.newBuilder()
+			.version(HttpClient.Version.HTTP_1_1)
+			.connectTimeout(Duration.ofSeconds(5))
+			.build();
+	private final ObjectMapper objectMapper = new ObjectMapper();
+	private final String books;
+	private final String run = Long.toString(System.currentTimeMillis(), 36);
+	private final AtomicLong isbns = new AtomicLong();
+	private final BookPool pool = new BookPool();
+
+	private BookLoadGenerator(String url) {
+		this.books = url.replaceAll("/+$", "") + "/api/books";
+	}
+
+	public static void main(String[] args) throws Exception {
+		double rate = Double.parseDouble(System.getProperty("load.rate", "200"));
+		long duration = Long.parseLong(System.getProperty("load.duration", "30"));
+		long warmup = Long.parseLong(System.getProperty("load.warmup", "5"));
+		int maxInFlight = Integer.parseInt(System.getProperty("load.max-in-flight", "512"));
+		Map<Operation, Integer> mix = parseMix(System.getProperty("load.mix", DEFAULT_MIX));
+		String url = System.getProperty("load.url", "");
+		String result = System.getProperty("load.result", "");
+
+		ConfigurableApplicationContext context = null;
+		if (url.isEmpty()) {
+			context = BenchmarkApplication.start(WebApplicationType.SERVLET);
+			url = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+		}
+
+		try {
+			BookLoadGenerator generator = new BookLoadGenerator(url);
+			generator.seed();
+			Map<Operation, Recorder> recorders = generator.drive(rate, mix, maxInFlight,
+					TimeUnit.SECONDS.toNanos(warmup), TimeUnit.SECONDS.toNanos(duration));
+			Map<String, Object> report = report(url, rate, duration, mix, recorders);
+			System.out.println(generator.objectMapper.writerWithDefaultPrettyPrinter().writeValueAsString(report));
+			if (!result.isEmpty()) {
+				Path path = Paths.get(result);
+				Files.createDirectories(path.toAbsolutePath().getParent());
+				generator.objectMapper.enable(SerializationFeature.INDENT_OUTPUT).writeValue(path.toFile(), report);
+			}
+		} finally {
+			if (context != null) {
+				context.close();
+			}
+		}
+	}
+
+	/*
+	 * Gives the reads, updates and deletions books of their own to work on.
+	 */
+	private void seed() throws IOException, InterruptedException {
+		for (int created = 0; created < SEED_BOOKS; created += SEED_BATCH) {
+			List<Map<String, String>> batch = new ArrayList<>(SEED_BATCH);
+			for (int i = 0; i < SEED_BATCH; i++) {
+				batch.add(book("Seed"));
+			}
+			HttpResponse<String> response = client.send(json(URI.create(books + "/batch"), "POST", batch),
+					BodyHandlers.ofString());
+			if (response.statusCode() != 200) {
+				throw new IllegalStateException("Could not seed books: " + response.statusCode() + " " + response.body());
+			}
+			for (JsonNode item : objectMapper.readTree(response.body())) {
+				if (item.hasNonNull("id")) {
+					pool.add(item.get("id").asLong(), item.get("isbn").asText());
+				}
+			}
+		}
+	}
+
+	private Map<Operation, Recorder> drive(double rate, Map<Operation, Integer> mix, int maxInFlight,
+			long warmupNanos, long durationNanos) throws InterruptedException {
+		Map<Operation, Recorder> recorders = new LinkedHashMap<>();
+		mix.keySet().forEach(operation -> recorders.put(operation, new Recorder()));
+		Operation[] wheel = wheel(mix);
+		Semaphore inFlight = new Semaphore(maxInFlight);
+
+		long interval = (long) (TimeUnit.SECONDS.toNanos(1) / rate);
+		long start = System.nanoTime();
+		long measureFrom = start + warmupNanos;
+		long end = measureFrom + durationNanos;
+		for (long due = start; due < end; due += interval) {
+			long wait;
+			while ((wait = due - System.nanoTime()) > 0) {
+				LockSupport.parkNanos(wait);
+			}
+
+			Operation operation = wheel[ThreadLocalRandom.current().nextInt(wheel.length)];
+			Recorder recorder = due >= measureFrom ? recorders.get(operation) : null;
+			if (!inFlight.tryAcquire()) {
+				if (recorder != null) {
+					recorder.dropped();
+				}
+				continue;
+			}
+
+			long dueAt = due;
+			send(operation).whenComplete((status, failure) -> {
+				inFlight.release();
+				if (recorder != null) {
+					recorder.record(System.nanoTime() - dueAt, failure != null ? Recorder.NO_RESPONSE : status);
+				}
+			});
+		}
+
+		if (!inFlight.tryAcquire(maxInFlight, 30, TimeUnit.SECONDS)) {
+			System.err.println("Some requests did not complete within 30 seconds after the run");
+		}
+		return recorders;
+	}
+
+	private CompletableFuture<Integer> send(Operation operation) {
+		switch (operation) {
+		case CREATE:
+			Map<String, String> book = book("Load");
+			return client.sendAsync(json(URI.create(books), "POST", book), BodyHandlers.ofString())
+					.thenApply(response -> {
+						if (response.statusCode() == 201) {
+							pool.add(idOf(response.body()), book.get("isbn"));
+						}
+						return response.statusCode();
+					});
+		case UPDATE:
+			Long updated = pool.random();
+			if (updated == null) {
+				return send(Operation.CREATE);
+			}
+			Map<String, String> changes = new LinkedHashMap<>();
+			changes.put("title", "Updated " + run + " " + isbns.incrementAndGet());
+			changes.put("author", "Load author " + (updated % 100));
+			changes.put("isbn", pool.isbn(updated));
+			return status(json(URI.create(books + "/" + updated), "PUT", changes));
+		case DELETE:
+			Long deleted = pool.take();
+			if (deleted == null) {
+				return send(Operation.CREATE);
+			}
+			return status(HttpRequest.newBuilder(URI.create(books + "/" + deleted)).DELETE().build());
+		case SEARCH:
+			return status(get(books + "/search?size=20&q=" + word() + "+" + word()));
+		case FIND:
+			return status(get(books + "?size=20&count=capped&author=" + word()));
+		default:
+			Long read = pool.random();
+			return status(get(books + "/" + (read != null ? read : 1)));
+		}
+	}
+
+	private CompletableFuture<Integer> status(HttpRequest request) {
+		return client.sendAsync(request, BodyHandlers.discarding()).thenApply(HttpResponse::statusCode);
+	}
+
+	private HttpRequest json(URI uri, String method, Object body) {
+		try {
+			return HttpRequest.newBuilder(uri)
+					.header("Content-Type", "application/json")
+					.method(method, BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(body)))
+					.build();
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static HttpRequest get(String uri) {
+		return HttpRequest.newBuilder(URI.create(uri)).GET().build();
+	}
+
+	private Map<String, String> book(String kind) {
+		long n = isbns.incrementAndGet();
+		Map<String, String> book = new LinkedHashMap<>();
+		book.put("title", kind + " book " + n);
+		book.put("author", kind + " author " + (n % 100));
+		book.put("isbn", "load-" + run + "-" + n);
+		return book;
+	}
+
+	private long idOf(String body) {
+		try {
+			return objectMapper.readTree(body).get("id").asLong();
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static String word() {
+		return WORDS[ThreadLocalRandom.current().nextInt(WORDS.length)];
+	}
+
+	private static Map<Operation, Integer> parseMix(String mix) {
+		Map<Operation, Integer> weights = new LinkedHashMap<>();
+		for (String part : mix.split(",")) {
+			String[] weight = part.trim().split("=");
+			weights.put(Operation.valueOf(weight[0].trim().toUpperCase()), Integer.parseInt(weight[1].trim()));
+		}
+		return weights;
+	}
+
+	private static Operation[] wheel(Map<Operation, Integer> mix) {
+		List<Operation> wheel = new ArrayList<>();
+		mix.forEach((operation, weight) -> {
+			for (int i = 0; i < weight; i++) {
+				wheel.add(operation);
+			}
+		});
+		return wheel.toArray(new Operation[0]);
+	}
+
+	private static Map<String, Object> report(String url, double rate, long duration, Map<Operation, Integer> mix,
+			Map<Operation, Recorder> recorders) {
+		Map<String, Object> report = new LinkedHashMap<>();
+		report.put("url", url);
+		report.put("targetRate", rate);
+		report.put("durationSeconds", duration);
+		Map<String, Integer> weights = new LinkedHashMap<>();
+		mix.forEach((operation, weight) -> weights.put(operation.name().toLowerCase(), weight));
+		report.put("mix", weights);
+
+		Recorder total = new Recorder();
+		Map<String, Object> operations = new LinkedHashMap<>();
+		recorders.forEach((operation, recorder) -> {
+			operations.put(operation.name().toLowerCase(), recorder.summary(duration));
+			total.add(recorder);
+		});
+		report.put("total", total.summary(duration));
+		report.put("operations", operations);
+		return report;
+	}
+
+	enum Operation {
+		GET, SEARCH, FIND, CREATE, UPDATE, DELETE
+	}
+
+	/**
+	 * Ids and isbns of the books created by the run, to pick from.
+	 */
+	private static class BookPool {
+
+		private final List<Long> ids = new ArrayList<>();
+		private final Map<Long, String> isbns = new TreeMap<>();
+
+		synchronized void add(long id, String isbn) {
+			ids.add(id);
+			isbns.put(id, isbn);
+		}
+
+		synchronized Long random() {
+			return ids.isEmpty() ? null : ids.get(ThreadLocalRandom.current().nextInt(ids.size()));
+		}
+
+		synchronized String isbn(long id) {
+			return isbns.get(id);
+		}
+
+		/*
+		 * Removes a random book, so it is deleted only once.
+		 */
+		synchronized Long take() {
+			if (ids.isEmpty()) {
+				return null;
+			}
+			int index = ThreadLocalRandom.current().nextInt(ids.size());
+			Long id = ids.get(index);
+			ids.set(index, ids.get(ids.size() - 1));
+			ids.remove(ids.size() - 1);
+			isbns.remove(id);
+			return id;
+		}
+
+	}
+
+	/**
+	 * Latencies and response statuses of one operation, {@link #NO_RESPONSE}
+	 * standing for the requests that failed without a response.
+	 */
+	private static class Recorder {
+
+		static final int NO_RESPONSE = 0;
+
+		private long[] latencies = new long[1024];
+		private int count;
+		private long dropped;
+		private final Map<Integer, Long> statuses = new TreeMap<>();
+
+		synchronized void record(long latencyNanos, int status) {
+			addLatency(latencyNanos);
+			statuses.merge(status, 1L, Long::sum);
+		}
+
+		private void addLatency(long latencyNanos) {
+			if (count == latencies.length) {
+				latencies = Arrays.copyOf(latencies, count * 2);
+			}
+			latencies[count++] = latencyNanos;
+		}
+
+		synchronized void dropped() {
+			dropped++;
+		}
+
+		synchronized void add(Recorder other) {
+			synchronized (other) {
+				for (int i = 0; i < other.count; i++) {
+					addLatency(other.latencies[i]);
+				}
+				other.statuses.forEach((status, n) -> statuses.merge(status, n, Long::sum));
+				dropped += other.dropped;
+			}
+		}
+
+		synchronized Map<String, Object> summary(long durationSeconds) {
+			long[] sorted = Arrays.copyOf(latencies, count);
+			Arrays.sort(sorted);
+			long errors = statuses.entrySet().stream()
+					.filter(entry -> entry.getKey() < 200 || entry.getKey() >= 400)
+					.mapToLong(Map.Entry::getValue)
+					.sum();
+
+			Map<String, Object> summary = new LinkedHashMap<>();
+			summary.put("requests", count);
+			summary.put("throughput", Math.round(count * 10.0 / durationSeconds) / 10.0);
+			summary.put("errors", errors);
+			summary.put("dropped", dropped);
+			summary.put("statuses", statuses);
+			Map<String, Object> millis = new LinkedHashMap<>();
+			millis.put("p50", percentile(sorted, 0.50));
+			millis.put("p90", percentile(sorted, 0.90));
+			millis.put("p99", percentile(sorted, 0.99));
+			millis.put("p99.9", percentile(sorted, 0.999));
+			millis.put("max", sorted.length == 0 ? 0 : toMillis(sorted[sorted.length - 1]));
+			summary.put("latencyMillis", millis);
+			return summary;
+		}
+
+		private static double percentile(long[] sorted, double percentile) {
+			if (sorted.length == 0) {
+				return 0;
+			}
+			return toMillis(sorted[(int) Math.min(sorted.length - 1, Math.ceil(percentile * sorted.length) - 1)]);
+		}
+
+		private static double toMillis(long nanos) {
+			return Math.round(nanos / 1000.0) / 1000.0;
+		}
+
+	}
+
+}
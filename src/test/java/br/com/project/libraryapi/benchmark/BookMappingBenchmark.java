@@ -0,0 +1,88 @@
+package br.com.project.libraryapi.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.modelmapper.ModelMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import br.com.project.libraryapi.api.dto.BookDto;
+import br.com.project.libraryapi.api.mapper.BookMapper;
+import br.com.project.libraryapi.model.entity.Book;
+
+/**
+ * Compares the reflective ModelMapper conversions previously used by the
+ * controller with {@link BookMapper}. Run with {@code -prof gc} to compare the
+ * allocation rate as well.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BookMappingBenchmark {
+
+	private ModelMapper modelMapper;
+	private BookMapper bookMapper;
+	private Book book;
+	private BookDto dto;
+	private List<Book> page;
+
+	@Setup
+	public void setUp() {
+		modelMapper = new ModelMapper();
+		bookMapper = new BookMapper();
+		book = new Book(1l, "My book", "Author", "123456");
+		dto = new BookDto(1l, "My book", "Author", "123456");
+		page = new ArrayList<>();
+		for (long id = 1; id <= 20; id++) {
+			page.add(new Book(id, "My book " + id, "Author", String.valueOf(100000 + id)));
+		}
+	}
+
+	@Benchmark
+	public BookDto modelMapperToDto() {
+		return modelMapper.map(book, BookDto.class);
+	}
+
+	@Benchmark
+	public BookDto bookMapperToDto() {
+		return bookMapper.toDto(book);
+	}
+
+	@Benchmark
+	public Book modelMapperToEntity() {
+		return modelMapper.map(dto, Book.class);
+	}
+
+	@Benchmark
+	public Book bookMapperToEntity() {
+		return bookMapper.toEntity(dto);
+	}
+
+	@Benchmark
+	public List<BookDto> modelMapperPage() {
+		List<BookDto> dtos = new ArrayList<>(page.size());
+		for (Book entity : page) {
+			dtos.add(modelMapper.map(entity, BookDto.class));
+		}
+		return dtos;
+	}
+
+	@Benchmark
+	public List<BookDto> bookMapperPage() {
+		return bookMapper.toDtos(page);
+	}
+
+}
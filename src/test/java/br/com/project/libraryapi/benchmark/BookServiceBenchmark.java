@@ -0,0 +1,76 @@
+package br.com.project.libraryapi.benchmark;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+
+import br.com.project.libraryapi.model.entity.Book;
+import br.com.project.libraryapi.model.repository.BookView;
+import br.com.project.libraryapi.service.BookService;
+
+/**
+ * BookServiceImpl hot paths against the embedded H2 database, with the
+ * second-level cache and the search index enabled as in production.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BookServiceBenchmark {
+
+	private ConfigurableApplicationContext context;
+	private BookService service;
+	private Long bookId;
+	private AtomicLong isbns = new AtomicLong();
+
+	@Setup
+	public void setUp() {
+		context = BenchmarkApplication.start(WebApplicationType.NONE);
+		service = context.getBean(BookService.class);
+		bookId = BenchmarkApplication.seed(context);
+	}
+
+	@TearDown
+	public void tearDown() {
+		context.close();
+	}
+
+	@Benchmark
+	public Book save() {
+		return service.save(new Book("Benchmark book", "Benchmark author", "bench-" + isbns.incrementAndGet()));
+	}
+
+	@Benchmark
+	public Optional<Book> getById() {
+		return service.getById(bookId);
+	}
+
+	@Benchmark
+	public Page<BookView> find() {
+		return service.find(new Book(null, null, "author 42", null), PageRequest.of(0, 20));
+	}
+
+	@Benchmark
+	public Page<BookView> search() {
+		return service.search("author 42", PageRequest.of(0, 20));
+	}
+
+}
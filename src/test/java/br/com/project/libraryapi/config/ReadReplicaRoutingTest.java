@@ -0,0 +1,104 @@
+package br.com.project.libraryapi.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.cookie;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.Map;
+
+import javax.servlet.http.Cookie;
+
+import org.hamcrest.Matchers;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import br.com.project.libraryapi.model.entity.Book;
+import br.com.project.libraryapi.service.BookService;
+
+/**
+ * The replica is a second H2 database that is never written to, so a read
+ * served by it only sees its own seeded book.
+ */
+@SpringBootTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:primary;DB_CLOSE_DELAY=-1",
+		"library.datasource.replicas[0].url=jdbc:h2:mem:replica;DB_CLOSE_DELAY=-1;INIT=RUNSCRIPT FROM 'classpath:replica.sql'",
+		"library.datasource.lag-window=10s" })
+@ActiveProfiles("test")
+@AutoConfigureMockMvc
+public class ReadReplicaRoutingTest {
+
+	@Autowired
+	BookService service;
+
+	@Autowired
+	MockMvc mvc;
+
+	@Autowired
+	PersistenceEndpoint persistenceEndpoint;
+
+	@Test
+	@DisplayName("Should read from the replica and write to the primary")
+	public void routeReadsToReplicaTest() {
+		service.save(new Book("Primary book", "Primary", "p-1"));
+
+		assertThat(service.find(new Book(null, null, null), PageRequest.of(0, 10)).getContent())
+				.extracting("title").containsExactly("Replica book");
+	}
+
+	@Test
+	@DisplayName("Should read from the primary after a write of the same client")
+	public void readYourWritesTest() throws Exception {
+		Cookie primaryUntil = mvc.perform(MockMvcRequestBuilders.post("/api/books")
+				.content("{\"title\":\"Written book\",\"author\":\"Client\",\"isbn\":\"c-1\"}")
+				.contentType(MediaType.APPLICATION_JSON))
+				.andExpect(status().isCreated())
+				.andExpect(cookie().exists(ReadYourWritesFilter.COOKIE))
+				.andReturn().getResponse().getCookie(ReadYourWritesFilter.COOKIE);
+
+		mvc.perform(MockMvcRequestBuilders.get("/api/books?author=client").cookie(primaryUntil))
+				.andExpect(jsonPath("content[*].title", Matchers.contains("Written book")));
+
+		mvc.perform(MockMvcRequestBuilders.get("/api/books?author=client"))
+				.andExpect(jsonPath("content", Matchers.empty()));
+	}
+
+	@Test
+	@DisplayName("Should write to the primary in a request that read from the replica first")
+	public void readThenWriteTest() throws Exception {
+		JdbcTemplate primary = new JdbcTemplate(new DriverManagerDataSource("jdbc:h2:mem:primary", "sa", ""));
+		primary.update("insert into book (id, author, isbn, title, version) values (1000, 'Replica', 'r-1',"
+				+ " 'Replica book', 0)");
+
+		mvc.perform(MockMvcRequestBuilders.delete("/api/books/1000"))
+				.andExpect(status().isNoContent());
+
+		assertThat(primary.queryForObject("select count(*) from book where id = 1000", Integer.class)).isZero();
+		assertThat(service.findChanges(0, 10)).extracting("bookId").contains(1000l);
+	}
+
+	@Test
+	@DisplayName("Should report the pool of the primary and of every replica")
+	@SuppressWarnings("unchecked")
+	public void reportPoolsTest() {
+		service.find(new Book(null, null, null), PageRequest.of(0, 10));
+
+		Map<String, Object> pools = (Map<String, Object>) persistenceEndpoint.persistence().get("pools");
+
+		assertThat(pools).containsOnlyKeys("library", "library-replica-1");
+		assertThat((Map<String, Object>) pools.get("library")).containsEntry("role", "primary");
+		assertThat((Map<String, Object>) pools.get("library-replica-1")).containsEntry("role", "replica-1")
+				.containsKeys("active", "idle", "total");
+	}
+
+}
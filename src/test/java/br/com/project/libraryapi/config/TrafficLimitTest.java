@@ -0,0 +1,154 @@
+package br.com.project.libraryapi.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.BDDMockito;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import br.com.project.libraryapi.api.limit.AdaptiveConcurrencyLimiter;
+import br.com.project.libraryapi.model.entity.Book;
+import br.com.project.libraryapi.model.repository.BookView;
+import br.com.project.libraryapi.service.BookCountMode;
+import br.com.project.libraryapi.service.BookService;
+
+@WebMvcTest(properties = {
+		"library.traffic.rate-limit.enabled=true",
+		"library.traffic.rate-limit.burst=3",
+		"library.traffic.rate-limit.permits-per-second=0.001",
+		"library.traffic.concurrency.initial-limit=1",
+		"library.traffic.concurrency.min-limit=1",
+		"library.traffic.concurrency.max-limit=1" })
+@ActiveProfiles("test")
+@AutoConfigureMockMvc
+public class TrafficLimitTest {
+
+	@Autowired
+	MockMvc mvc;
+
+	@MockBean
+	BookService service;
+
+	@Test
+	@DisplayName("Should answer 429 once a client used its burst")
+	public void rateLimitTest() throws Exception {
+		BDDMockito.given(service.getById(1L)).willReturn(Optional.of(new Book(1L, "Title", "Author", "123")));
+
+		for (int i = 0; i < 3; i++) {
+			mvc.perform(get("/api/books/1", "10.0.0.1")).andExpect(status().isOk());
+		}
+		mvc.perform(get("/api/books/1", "10.0.0.1"))
+				.andExpect(status().isTooManyRequests())
+				.andExpect(header().exists(HttpHeaders.RETRY_AFTER))
+				.andExpect(jsonPath("errors[0]").value("Too many requests."));
+
+		mvc.perform(get("/api/books/1", "10.0.0.2")).andExpect(status().isOk());
+	}
+
+	@Test
+	@DisplayName("Should shed listings above the concurrency limit but not lookups by id, creations or exports")
+	public void concurrencyLimitTest() throws Exception {
+		CountDownLatch running = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		BDDMockito.given(service.find(Mockito.any(Book.class), Mockito.any(Pageable.class),
+				Mockito.any(BookCountMode.class))).willAnswer(invocation -> {
+			running.countDown();
+			release.await(5, TimeUnit.SECONDS);
+			return new PageImpl<BookView>(List.of(), invocation.getArgument(1), 0);
+		});
+		BDDMockito.given(service.getById(1L)).willReturn(Optional.of(new Book(1L, "Title", "Author", "123")));
+		BDDMockito.given(service.save(Mockito.any(Book.class))).willReturn(new Book(2L, "Title", "Author", "456"));
+
+		CompletableFuture<Integer> slow = CompletableFuture
+				.supplyAsync(() -> perform(get("/api/books?page=0&size=10", "10.0.1.1")));
+		assertThat(running.await(5, TimeUnit.SECONDS)).isTrue();
+
+		mvc.perform(get("/api/books?page=0&size=10", "10.0.1.2"))
+				.andExpect(status().isServiceUnavailable())
+				.andExpect(header().string(HttpHeaders.RETRY_AFTER, "1"));
+		mvc.perform(get("/api/books/1", "10.0.1.3")).andExpect(status().isOk());
+		mvc.perform(MockMvcRequestBuilders.post("/api/books")
+				.contentType(MediaType.APPLICATION_JSON)
+				.content("{\"title\":\"Title\",\"author\":\"Author\",\"isbn\":\"456\"}")
+				.with(request -> {
+					request.setRemoteAddr("10.0.1.5");
+					return request;
+				}))
+				.andExpect(status().isCreated());
+		mvc.perform(get("/api/books/export", "10.0.1.6")).andExpect(status().isOk());
+
+		release.countDown();
+		assertThat(slow.get(5, TimeUnit.SECONDS)).isEqualTo(200);
+		mvc.perform(get("/api/books?page=0&size=10", "10.0.1.4")).andExpect(status().isOk());
+	}
+
+	@Test
+	@DisplayName("Should shrink the concurrency limit once per window of slow requests and recover when they are fast")
+	public void adaptiveLimitTest() {
+		AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(20, 2, 200, 2.0);
+		long fast = TimeUnit.MILLISECONDS.toNanos(10);
+		long slow = TimeUnit.MILLISECONDS.toNanos(100);
+
+		for (int i = 0; i < 20; i++) {
+			assertThat(limiter.tryAcquire()).isTrue();
+		}
+		assertThat(limiter.tryAcquire()).isFalse();
+
+		limiter.release(fast);
+		for (int i = 1; i < 20; i++) {
+			limiter.release(slow);
+		}
+		assertThat(limiter.getLimit()).isEqualTo(18);
+		assertThat(limiter.getInFlight()).isZero();
+
+		for (int i = 20; i < 2 * AdaptiveConcurrencyLimiter.WINDOW; i++) {
+			limiter.tryAcquire();
+			limiter.release(slow);
+		}
+		assertThat(limiter.getLimit()).isEqualTo(16);
+
+		for (int i = 0; i < 100; i++) {
+			limiter.tryAcquire();
+			limiter.release(fast);
+		}
+		assertThat(limiter.getLimit()).isGreaterThan(16);
+	}
+
+	private static MockHttpServletRequestBuilder get(String uri, String client) {
+		return MockMvcRequestBuilders.get(uri).with(request -> {
+			request.setRemoteAddr(client);
+			return request;
+		});
+	}
+
+	private int perform(MockHttpServletRequestBuilder request) {
+		try {
+			return mvc.perform(request).andReturn().getResponse().getStatus();
+		} catch (Exception e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+}
@@ -0,0 +1,58 @@
+package br.com.project.libraryapi.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.core.task.AsyncTaskExecutor;
+
+/**
+ * The build runs on runtimes older than Java 21 too, where the virtual mode
+ * has to fail at startup, so each case only runs on the runtimes it applies
+ * to.
+ */
+public class VirtualThreadConfigurationTest {
+
+	private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+			.withUserConfiguration(VirtualThreadConfiguration.class);
+
+	@Test
+	@DisplayName("Should refuse to start in virtual mode before Java 21")
+	public void failFastBeforeJava21Test() {
+		Assumptions.assumeTrue(Runtime.version().feature() < 21);
+
+		contextRunner.withPropertyValues("library.execution.mode=virtual").run(context -> {
+			assertThat(context).hasFailed();
+			assertThat(context.getStartupFailure())
+					.hasStackTraceContaining("library.execution.mode=virtual needs Java 21 or newer");
+		});
+	}
+
+	@Test
+	@DisplayName("Should run the application tasks on virtual threads from Java 21")
+	public void virtualThreadsFromJava21Test() {
+		Assumptions.assumeTrue(Runtime.version().feature() >= 21);
+
+		contextRunner.withPropertyValues("library.execution.mode=virtual").run(context -> {
+			AsyncTaskExecutor executor = context.getBean(
+					TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME, AsyncTaskExecutor.class);
+			Thread thread = executor.submit(Thread::currentThread).get(5, TimeUnit.SECONDS);
+			assertThat(Thread.class.getMethod("isVirtual").invoke(thread)).isEqualTo(true);
+		});
+	}
+
+	@Test
+	@DisplayName("Should keep the platform threads unless the virtual mode is chosen")
+	public void platformModeTest() {
+		contextRunner.withPropertyValues("library.execution.mode=platform").run(context -> {
+			assertThat(context).hasNotFailed();
+			assertThat(context).doesNotHaveBean(VirtualThreadConfiguration.class);
+		});
+	}
+
+}
@@ -1,15 +1,32 @@
 package br.com.project.libraryapi.model.repository;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
 
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+import org.hibernate.search.mapper.orm.Search;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Sort.Direction;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
@@ -48,6 +65,157 @@ public class BookRepositoryTest {
 		assertThat(existsByIsbn).isFalse();
 	}
 
+	@Test
+	@DisplayName("Should not allow two books with the same isbn")
+	public void uniqueIsbnTest() {
+		entityManager.persist(createNewBook());
+
+		Throwable catchThrowable = catchThrowable(() -> repository.saveAndFlush(createNewBook()));
+
+		assertThat(catchThrowable).isInstanceOf(DataIntegrityViolationException.class);
+	}
+
+	@Test
+	@DisplayName("Should return only the isbns already in use")
+	public void findIsbnsInTest() {
+		entityManager.persist(createNewBook());
+
+		Set<String> isbns = repository.findIsbnsIn(Arrays.asList("123", "456"));
+
+		assertThat(isbns).containsExactly("123");
+	}
+
+	@Test
+	@DisplayName("Should pass every stored isbn to the action")
+	public void forEachIsbnTest() {
+		entityManager.persist(createNewBook());
+		entityManager.persist(new Book("Other book", "Author", "456"));
+
+		List<String> isbns = new ArrayList<>();
+		repository.forEachIsbn(isbns::add);
+
+		assertThat(isbns).containsExactly("123", "456");
+	}
+
+	@Test
+	@DisplayName("Should stream all books ordered by id as views")
+	public void streamAllTest() {
+		Book first = entityManager.persist(createNewBook());
+		Book second = entityManager.persist(new Book("Other book", "Author", "456"));
+
+		try (Stream<BookView> books = repository.streamAll()) {
+			List<BookView> streamed = books.collect(Collectors.toList());
+
+			assertThat(streamed).extracting(BookView::getId).containsExactly(first.getId(), second.getId());
+			assertThat(streamed).extracting(BookView::getIsbn).containsExactly("123", "456");
+		}
+	}
+
+	@Test
+	@DisplayName("Should find a page of book views matching the filter")
+	public void findViewsTest() {
+		entityManager.persist(new Book("C book", "Author", "1"));
+		Book second = entityManager.persist(new Book("B book", "Author", "2"));
+		entityManager.persist(new Book("A book", "Other", "3"));
+		entityManager.flush();
+		entityManager.clear();
+
+		Page<BookView> page = repository.findViews(new Book(null, "author", null), PageRequest.of(0, 1, Sort.by("title")));
+
+		assertThat(page.getContent()).extracting(BookView::getId).containsExactly(second.getId());
+		assertThat(page.getContent().get(0).getVersion()).isEqualTo(second.getVersion());
+		assertThat(page.getTotalElements()).isEqualTo(2);
+	}
+
+	@Test
+	@DisplayName("Should count the books matching the filter up to the limit and probe a position")
+	public void countViewsTest() {
+		entityManager.persist(new Book("A book", "Author", "1"));
+		entityManager.persist(new Book("B book", "Author", "2"));
+		entityManager.persist(new Book("C book", "Other", "3"));
+
+		assertThat(repository.countViews(new Book(null, "author", null))).isEqualTo(2);
+		assertThat(repository.countViews(new Book("book", null, null), 2)).isEqualTo(2);
+		assertThat(repository.countViews(new Book("book", null, null), 10)).isEqualTo(3);
+		assertThat(repository.existsViewAt(new Book(null, "author", null), 1)).isTrue();
+		assertThat(repository.existsViewAt(new Book(null, "author", null), 2)).isFalse();
+	}
+
+	@Test
+	@DisplayName("Should match filter wildcards literally and refuse unknown sort properties")
+	public void findViewsLiteralTest() {
+		Book percent = entityManager.persist(new Book("100% book", "Author", "1"));
+		entityManager.persist(new Book("100 books", "Author", "2"));
+
+		Page<BookView> page = repository.findViews(new Book("0%", null, null), PageRequest.of(0, 10));
+
+		assertThat(page.getContent()).extracting(BookView::getId).containsExactly(percent.getId());
+		Throwable exception = catchThrowable(
+				() -> repository.findViews(new Book(null, null, null), PageRequest.of(0, 10, Sort.by("title.length"))));
+		assertThat(exception).isInstanceOf(InvalidDataAccessApiUsageException.class);
+	}
+
+	@Test
+	@DisplayName("Should read a slice of books after the informed sort key")
+	public void findSliceTest() {
+		Book first = entityManager.persist(new Book("A book", "Author", "1"));
+		Book second = entityManager.persist(new Book("B book", "Author", "2"));
+		Book third = entityManager.persist(new Book("B book", "Author", "3"));
+		entityManager.persist(new Book("C book", "Other", "4"));
+		Sort sort = Sort.by("title").and(Sort.by("id"));
+
+		Slice<Book> firstSlice = repository.findSlice(BookSpecifications.matching(new Book(null, "author", null)),
+				sort, 2);
+		Slice<Book> secondSlice = repository.findSlice(BookSpecifications.matching(new Book(null, "author", null))
+				.and(BookSpecifications.after("title", Direction.ASC, false, second.getTitle(), second.getId())), sort, 2);
+
+		assertThat(firstSlice.getContent()).containsExactly(first, second);
+		assertThat(firstSlice.hasNext()).isTrue();
+		assertThat(secondSlice.getContent()).containsExactly(third);
+		assertThat(secondSlice.hasNext()).isFalse();
+	}
+
+	@Test
+	@DisplayName("Should seek the slices ignoring case as the first one is ordered, placing null keys first")
+	public void findSliceIgnoringCaseTest() {
+		Book lower = entityManager.persist(new Book("a book", "Author", "1"));
+		Book upper = entityManager.persist(new Book("B book", "Author", "2"));
+		Book untitled = entityManager.persist(new Book(null, "Author", "3"));
+		Book last = entityManager.persist(new Book("c book", "Author", "4"));
+		Sort sort = Sort.by(Sort.Order.asc("title").ignoreCase()).and(Sort.by("id"));
+
+		List<Book> books = new ArrayList<>();
+		Specification<Book> specification = BookSpecifications.matching(new Book(null, null, null));
+		Slice<Book> slice = repository.findSlice(specification, sort, 1);
+		books.addAll(slice.getContent());
+		while (slice.hasNext()) {
+			Book book = slice.getContent().get(0);
+			slice = repository.findSlice(specification.and(BookSpecifications.after("title", Direction.ASC, true,
+					book.getTitle() == null ? "" : book.getTitle(), book.getId())), sort, 1);
+			books.addAll(slice.getContent());
+		}
+
+		assertThat(books).containsExactly(untitled, lower, upper, last);
+	}
+
+	@Test
+	@DisplayName("Should search books by prefix and misspelled terms ranking exact matches first")
+	public void searchTest() {
+		Book exact = entityManager.persist(new Book("Domain Driven Design", "Eric Evans", "1"));
+		Book prefix = entityManager.persist(new Book("Designing Data-Intensive Applications", "Martin Kleppmann", "2"));
+		entityManager.persist(new Book("Clean Code", "Robert Martin", "3"));
+		entityManager.flush();
+		Search.session(entityManager.getEntityManager()).indexingPlan().execute();
+
+		Page<BookView> byPrefix = repository.search("design", PageRequest.of(0, 10));
+		Page<BookView> misspelled = repository.search("kleppman", PageRequest.of(0, 10));
+
+		assertThat(byPrefix.getContent()).extracting(BookView::getId).containsExactly(exact.getId(), prefix.getId());
+		assertThat(byPrefix.getTotalElements()).isEqualTo(2);
+		assertThat(misspelled.getContent()).extracting(BookView::getTitle).containsExactly(prefix.getTitle());
+		assertThat(misspelled.getContent().get(0).getVersion()).isEqualTo(prefix.getVersion());
+	}
+
 	@Test
 	@DisplayName("Should get a book by id")
 	public void findByIdTest() {
@@ -81,6 +249,37 @@ public class BookRepositoryTest {
 		assertThat(deletedBook).isNull();
 	}
 
+	@Test
+	@DisplayName("Should increase the version and the update time when a book is changed")
+	public void versionTest() {
+		Book book = entityManager.persistFlushFind(createNewBook());
+		Long version = book.getVersion();
+		Instant updatedAt = book.getUpdatedAt();
+
+		book.setTitle("New title");
+		entityManager.flush();
+
+		assertThat(version).isNotNull();
+		assertThat(updatedAt).isNotNull();
+		assertThat(book.getVersion()).isEqualTo(version + 1);
+		assertThat(book.getUpdatedAt()).isAfterOrEqualTo(updatedAt);
+	}
+
+	@Test
+	@DisplayName("Should find books by id from the cache and the database")
+	public void findAllByIdCachedFirstTest() {
+		Book cached = entityManager.persist(new Book("A book", "Author", "1"));
+		Book uncached = entityManager.persist(new Book("B book", "Author", "2"));
+		entityManager.flush();
+		entityManager.clear();
+		entityManager.getEntityManager().getEntityManagerFactory().getCache().evict(Book.class, uncached.getId());
+
+		List<Book> books = repository.findAllByIdCachedFirst(
+				Arrays.asList(uncached.getId(), cached.getId(), uncached.getId() + 1000));
+
+		assertThat(books).extracting(Book::getIsbn).containsExactlyInAnyOrder("1", "2");
+	}
+
 	private Book createNewBook() {
 		return new Book("My book", "Author", "123");
 	}
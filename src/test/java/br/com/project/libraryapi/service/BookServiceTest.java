@@ -1,11 +1,20 @@
 package br.com.project.libraryapi.service;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
 
+import java.sql.SQLException;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
 
+import org.hibernate.exception.ConstraintViolationException;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -13,17 +22,30 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mockito;
 import org.springframework.boot.test.mock.mockito.MockBean;
-import org.springframework.data.domain.Example;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Sort.Direction;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.PlatformTransactionManager;
 
+import br.com.project.libraryapi.exception.BookChangesPurgedException;
 import br.com.project.libraryapi.exception.BusinessException;
 import br.com.project.libraryapi.model.entity.Book;
+import br.com.project.libraryapi.model.entity.BookChange;
 import br.com.project.libraryapi.model.repository.BookRepository;
+import br.com.project.libraryapi.model.repository.BookView;
+import br.com.project.libraryapi.service.impl.BookChangeLog;
 import br.com.project.libraryapi.service.impl.BookServiceImpl;
+import br.com.project.libraryapi.service.impl.IsbnBloomFilter;
 
 @ExtendWith(SpringExtension.class)
 @ActiveProfiles("test")
@@ -34,37 +56,171 @@ public class BookServiceTest {
 	@MockBean
 	BookRepository repository;
 
+	@MockBean
+	BookChangeLog changeLog;
+
 	@BeforeEach
 	public void setUp() {
-		this.service = new BookServiceImpl(repository);
+		this.service = new BookServiceImpl(repository, changeLog, new ConcurrentMapCacheManager(),
+				Mockito.mock(PlatformTransactionManager.class));
 	}
 
 	@Test
 	@DisplayName("Should save a book")
-	public void saveBookTest() throws BusinessException {
+	public void saveBookTest() {
 		Book book = createNewBook();
-		Mockito.when(repository.save(book)).thenReturn(new Book(1l, "My book", "Author", "123456"));
+		Mockito.when(repository.saveAndFlush(book)).thenReturn(new Book(1l, "My book", "Author", "123456"));
 
 		Book savedBook = service.save(book);
+		Mockito.verify(changeLog).record(BookChange.Type.CREATE, savedBook);
 		assertThat(savedBook.getId()).isNotNull();
 		assertThat(savedBook.getIsbn()).isEqualTo("123456");
 		assertThat(savedBook.getTitle()).isEqualTo("My book");
 		assertThat(savedBook.getAuthor()).isEqualTo("Author");
 	}
 
-//	@Test
-//	@DisplayName("Should generate a validation error when trying to register a book with isbn already used by another.")
-//	public void shouldNotSaveABookWithDuplicatedISBN() {
-//		Book book = createNewBook();
-//		Mockito.when(repository.existsByIsbn(Mockito.anyString())).thenReturn(true);
-//		
-//		Throwable catchThrowable = Assertions.catchThrowable(() -> service.save(book));
-//		assertThat(catchThrowable)
-//			.isInstanceOf(BusinessException.class)
-//			.hasMessage("Isbn is already in use.");
-//		
-//		Mockito.verify(repository, Mockito.never()).save(book);
-//	}
+	@Test
+	@DisplayName("Should reject a known duplicated isbn from the isbn index without trying to insert it")
+	public void isbnIndexTest() {
+		Book savedBook = new Book(1l, "My book", "Author", "123456");
+		Mockito.when(repository.saveAndFlush(Mockito.any(Book.class))).thenReturn(savedBook);
+		Mockito.when(repository.findById(1l)).thenReturn(Optional.of(savedBook));
+
+		service.save(new Book("My book", "Author", "123456"));
+		Throwable catchThrowable = catchThrowable(() -> service.save(new Book("Other book", "Author", "123456")));
+
+		assertThat(catchThrowable).isInstanceOf(BusinessException.class);
+		Mockito.verify(repository, Mockito.times(1)).saveAndFlush(Mockito.any(Book.class));
+	}
+
+	@Test
+	@DisplayName("Should try the insert when the indexed book no longer has the isbn")
+	public void staleIsbnIndexTest() {
+		Book savedBook = new Book(1l, "My book", "Author", "123456");
+		Mockito.when(repository.saveAndFlush(Mockito.any(Book.class))).thenReturn(savedBook);
+		Mockito.when(repository.findById(1l)).thenReturn(Optional.empty());
+
+		service.save(new Book("My book", "Author", "123456"));
+		service.save(new Book("Other book", "Author", "123456"));
+
+		Mockito.verify(repository, Mockito.times(2)).saveAndFlush(Mockito.any(Book.class));
+	}
+
+	@Test
+	@DisplayName("Should save a batch of books rejecting the duplicated isbns")
+	public void saveAllBooksTest() {
+		Book newBook = new Book("My book", "Author", "123456");
+		Book usedIsbnBook = new Book("Other book", "Author", "654321");
+		Book repeatedBook = new Book("Repeated book", "Author", "123456");
+		Mockito.when(repository.findIsbnsIn(Mockito.anyCollection())).thenReturn(Collections.singleton("654321"));
+
+		List<BookSaveResult> results = service.saveAll(Arrays.asList(newBook, usedIsbnBook, repeatedBook));
+
+		assertThat(results).extracting(BookSaveResult::isSaved).containsExactly(true, false, false);
+		assertThat(results.get(1).getError()).isEqualTo("Isbn is already in use.");
+		Mockito.verify(repository, Mockito.times(1)).findIsbnsIn(Mockito.anyCollection());
+		Mockito.verify(repository, Mockito.times(1)).saveAll(Arrays.asList(newBook));
+		Mockito.verify(changeLog).record(BookChange.Type.CREATE, Arrays.asList(newBook));
+	}
+
+	@Test
+	@DisplayName("Should only query the isbns of a batch that the loaded isbn filter can not tell free")
+	@SuppressWarnings("unchecked")
+	public void saveAllIsbnFilterTest() {
+		Mockito.doAnswer(invocation -> {
+			((Consumer<String>) invocation.getArgument(0)).accept("654321");
+			return null;
+		}).when(repository).forEachIsbn(Mockito.any());
+		Mockito.when(repository.findIsbnsIn(Mockito.anyCollection())).thenReturn(Collections.singleton("654321"));
+		((BookServiceImpl) service).loadIsbnFilter();
+
+		List<BookSaveResult> results = service.saveAll(Arrays.asList(new Book("My book", "Author", "123456"),
+				new Book("Other book", "Author", "654321")));
+		service.saveAll(Arrays.asList(new Book("Third book", "Author", "111111")));
+
+		assertThat(results).extracting(BookSaveResult::isSaved).containsExactly(true, false);
+		Mockito.verify(repository, Mockito.times(1)).findIsbnsIn(Collections.singleton("654321"));
+		Mockito.verify(repository, Mockito.times(1)).findIsbnsIn(Mockito.anyCollection());
+	}
+
+	@Test
+	@DisplayName("Should add the isbns saved by other instances to the isbn filter from the change log")
+	@SuppressWarnings("unchecked")
+	public void followIsbnChangesTest() {
+		Mockito.when(changeLog.lastChangeId()).thenReturn(5l);
+		Mockito.when(changeLog.findAfter(Mockito.eq(5l), Mockito.anyInt())).thenReturn(Arrays.asList(
+				change(6l, BookChange.Type.CREATE, "777777"), change(7l, BookChange.Type.DELETE, "888888")));
+		Mockito.when(repository.findIsbnsIn(Mockito.anyCollection())).thenReturn(Collections.singleton("777777"));
+		((BookServiceImpl) service).loadIsbnFilter();
+
+		((BookServiceImpl) service).followIsbnChanges();
+		((BookServiceImpl) service).followIsbnChanges();
+		List<BookSaveResult> results = service.saveAll(Arrays.asList(new Book("My book", "Author", "777777"),
+				new Book("Other book", "Author", "888888")));
+
+		assertThat(results).extracting(BookSaveResult::isSaved).containsExactly(false, true);
+		Mockito.verify(repository).findIsbnsIn(Collections.singleton("777777"));
+		Mockito.verify(changeLog).findAfter(Mockito.eq(7l), Mockito.anyInt());
+	}
+
+	@Test
+	@DisplayName("Should reload the isbn filter when the changes it did not follow were purged")
+	public void followPurgedIsbnChangesTest() {
+		Mockito.when(changeLog.findAfter(Mockito.eq(0l), Mockito.anyInt()))
+				.thenThrow(new BookChangesPurgedException(0, 10));
+		((BookServiceImpl) service).loadIsbnFilter();
+
+		((BookServiceImpl) service).followIsbnChanges();
+
+		Mockito.verify(repository, Mockito.times(2)).forEachIsbn(Mockito.any());
+	}
+
+	@Test
+	@DisplayName("Should keep every added isbn and about 1% of false positives at capacity")
+	public void isbnBloomFilterTest() {
+		IsbnBloomFilter filter = new IsbnBloomFilter(10_000);
+		for (int i = 0; i < 10_000; i++) {
+			assertThat(filter.add("978-" + i)).isTrue();
+		}
+
+		long falsePositives = IntStream.range(0, 10_000).filter(i -> filter.mightContain("979-" + i)).count();
+
+		assertThat(IntStream.range(0, 10_000)).allMatch(i -> filter.mightContain("978-" + i));
+		assertThat(falsePositives).isLessThan(200);
+		long size = filter.size();
+		assertThat(filter.add("978-1")).isTrue();
+		assertThat(filter.size()).isEqualTo(size);
+		assertThat(IntStream.range(0, 100).mapToObj(i -> filter.add("980-" + i))).contains(false);
+	}
+
+	@Test
+	@DisplayName("Should generate a validation error when trying to register a book with isbn already used by another.")
+	public void shouldNotSaveABookWithDuplicatedISBN() {
+		Book book = createNewBook();
+		Mockito.when(repository.saveAndFlush(book)).thenThrow(duplicatedIsbnViolation());
+
+		Throwable catchThrowable = catchThrowable(() -> service.save(book));
+		assertThat(catchThrowable)
+			.isInstanceOf(BusinessException.class)
+			.hasMessage("Isbn is already in use.");
+
+		Mockito.verify(repository, Mockito.never()).existsByIsbn(Mockito.anyString());
+	}
+
+	@Test
+	@DisplayName("Should retry book by book a batch chunk that violated the isbn index")
+	public void saveAllRetryTest() {
+		Book newBook = new Book("My book", "Author", "123456");
+		Book takenBook = new Book("Other book", "Author", "654321");
+		Mockito.when(repository.saveAll(Mockito.anyList())).thenThrow(duplicatedIsbnViolation());
+		Mockito.when(repository.saveAndFlush(newBook)).thenReturn(newBook);
+		Mockito.when(repository.saveAndFlush(takenBook)).thenThrow(duplicatedIsbnViolation());
+
+		List<BookSaveResult> results = service.saveAll(Arrays.asList(newBook, takenBook));
+
+		assertThat(results).extracting(BookSaveResult::isSaved).containsExactly(true, false);
+		assertThat(results.get(1).getError()).isEqualTo("Isbn is already in use.");
+	}
 
 	@Test
 	@DisplayName("Should get a book one book by id")
@@ -81,6 +237,30 @@ public class BookServiceTest {
 		assertThat(foundBook.get().getIsbn()).isEqualTo(book.getIsbn());
 	}
 
+	@Test
+	@DisplayName("Should get books by id in the requested order")
+	public void getByIdsTest() {
+		Book first = new Book(1l, "My book", "Author", "123456");
+		Book second = new Book(2l, "Other book", "Author", "654321");
+		Mockito.when(repository.findAllByIdCachedFirst(Mockito.anyCollection()))
+				.thenReturn(Arrays.asList(first, second));
+
+		Map<Long, Book> books = service.getByIds(Arrays.asList(2l, 3l, 1l, 2l));
+
+		assertThat(books.keySet()).containsExactly(2l, 1l);
+		assertThat(books.get(1l)).isSameAs(first);
+		Mockito.verify(repository).findAllByIdCachedFirst(Mockito.argThat(ids -> ids.size() == 3));
+	}
+
+	@Test
+	@DisplayName("Should not look up more books than the limit")
+	public void getByIdsLimitTest() {
+		List<Long> ids = LongStream.rangeClosed(1, 1001).boxed().collect(Collectors.toList());
+
+		Assertions.assertThrows(IllegalArgumentException.class, () -> service.getByIds(ids));
+		Mockito.verify(repository, Mockito.never()).findAllByIdCachedFirst(Mockito.anyCollection());
+	}
+
 	@Test
 	@DisplayName("Should return empty when a searched book by id does not exist")
 	public void bookNotFoundByIdTest() {
@@ -96,8 +276,11 @@ public class BookServiceTest {
 	public void deleteBookTest() {
 		Book book = createNewBook();
 
+		Mockito.when(repository.findById(book.getId())).thenReturn(Optional.of(book));
+
 		Assertions.assertDoesNotThrow(() -> service.delete(book.getId()));
 		Mockito.verify(repository, Mockito.times(1)).deleteById(book.getId());
+		Mockito.verify(changeLog).record(BookChange.Type.DELETE, book);
 
 	}
 
@@ -116,16 +299,67 @@ public class BookServiceTest {
 	@DisplayName("Should update a book")
 	public void updateBookTest() {
 
-		Book updatingBook = createNewBook();
-		updatingBook.setAuthor("New Author");
+		Book storedBook = createNewBook();
+		Book updatingBook = new Book(1l, "New title", "New Author", "654321");
+		Mockito.when(repository.findById(1l)).thenReturn(Optional.of(storedBook));
 
-		Mockito.when(repository.save(updatingBook)).thenReturn(updatingBook);
-		Book update = service.update(updatingBook);
+		Book update = service.update(updatingBook).get();
 
+		assertThat(update).isSameAs(storedBook);
 		assertThat(update.getAuthor()).isEqualTo(updatingBook.getAuthor());
 		assertThat(update.getId()).isEqualTo(updatingBook.getId());
 		assertThat(update.getTitle()).isEqualTo(updatingBook.getTitle());
 		assertThat(update.getIsbn()).isEqualTo(updatingBook.getIsbn());
+		Mockito.verify(repository).flush();
+		Mockito.verify(repository, Mockito.never()).save(Mockito.any(Book.class));
+		Mockito.verify(changeLog).record(BookChange.Type.UPDATE, storedBook);
+
+	}
+
+	@Test
+	@DisplayName("Should update only the informed fields of a book")
+	public void updateFieldsTest() {
+
+		Book storedBook = createNewBook();
+		Book changes = new Book(1l, "New title", null, null);
+		Mockito.when(repository.findById(1l)).thenReturn(Optional.of(storedBook));
+
+		Book update = service.updateFields(changes).get();
+
+		assertThat(update.getTitle()).isEqualTo("New title");
+		assertThat(update.getAuthor()).isEqualTo("Author");
+		assertThat(update.getIsbn()).isEqualTo("123456");
+		Mockito.verify(repository).flush();
+
+	}
+
+	@Test
+	@DisplayName("Should return empty when the book to be updated does not exist")
+	public void updateMissingBookTest() {
+
+		Mockito.when(repository.findById(1l)).thenReturn(Optional.empty());
+
+		assertThat(service.updateFields(new Book(1l, "New title", null, null))).isEmpty();
+		Mockito.verify(repository, Mockito.never()).flush();
+		Mockito.verifyNoInteractions(changeLog);
+
+	}
+
+	@Test
+	@DisplayName("Should reject an update based on an outdated version")
+	public void updateStaleVersionTest() {
+
+		Book storedBook = createNewBook();
+		storedBook.setVersion(3l);
+		Book changes = new Book(1l, "New title", null, null);
+		changes.setVersion(2l);
+		Mockito.when(repository.findById(1l)).thenReturn(Optional.of(storedBook));
+
+		Throwable exception = catchThrowable(() -> service.updateFields(changes));
+
+		assertThat(exception).isInstanceOf(ObjectOptimisticLockingFailureException.class);
+		assertThat(storedBook.getTitle()).isEqualTo("My book");
+		Mockito.verify(repository, Mockito.never()).flush();
 
 	}
 
@@ -136,7 +370,7 @@ public class BookServiceTest {
 		@SuppressWarnings("deprecation")
 		Book book = new Book();
 		Assertions.assertThrows(IllegalArgumentException.class, () -> service.update(book));
-		Mockito.verify(repository, Mockito.never()).save(book);
+		Mockito.verify(repository, Mockito.never()).findById(Mockito.any());
 
 	}
 
@@ -145,13 +379,12 @@ public class BookServiceTest {
 	public void findBookTest() {
 
 		Book book = createNewBook();
-		List<Book> list = Arrays.asList(book);
-		Page<Book> page = new PageImpl<>(list, PageRequest.of(0, 10), 1);
+		List<BookView> list = Arrays.asList(new BookView(1l, "My book", "Author", "123456", 0l));
+		Page<BookView> page = new PageImpl<>(list, PageRequest.of(0, 10), 1);
 		
-		Mockito.when(repository.findAll(Mockito.any(Example.class), Mockito.any(PageRequest.class)))
-			.thenReturn(page);
+		Mockito.when(repository.findViews(book, PageRequest.of(0, 10))).thenReturn(page);
 		
-		Page<Book> results = service.find(book, PageRequest.of(0, 10));
+		Page<BookView> results = service.find(book, PageRequest.of(0, 10));
 
 		assertThat(results.getTotalElements()).isEqualTo(1);
 		assertThat(results.getContent()).isEqualTo(list);
@@ -159,7 +392,151 @@ public class BookServiceTest {
 		assertThat(results.getPageable().getPageSize()).isEqualTo(10);
 	}
 
+	@Test
+	@DisplayName("Should reuse the count of the same filter when asked for a cached count")
+	public void findBookCachedCountTest() {
+		List<BookView> list = Arrays.asList(new BookView(1l, "My book", "Author", "123456", 0l));
+		Mockito.when(repository.findViewContent(Mockito.any(Book.class), Mockito.eq(PageRequest.of(0, 1))))
+			.thenReturn(list);
+		Mockito.when(repository.countViews(Mockito.any(Book.class))).thenReturn(42l);
+
+		service.find(new Book("My", null, null), PageRequest.of(0, 1), BookCountMode.CACHED);
+		Page<BookView> results = service.find(new Book("my", null, null), PageRequest.of(0, 1), BookCountMode.CACHED);
+
+		assertThat(results.getTotalElements()).isEqualTo(42);
+		Mockito.verify(repository, Mockito.times(1)).countViews(Mockito.any(Book.class));
+	}
+
+	@Test
+	@DisplayName("Should stop counting past the cap when asked for a capped count")
+	public void findBookCappedCountTest() {
+		Book filter = new Book("book", null, null);
+		List<BookView> list = Arrays.asList(new BookView(1l, "My book", "Author", "123456", 0l));
+		Mockito.when(repository.findViewContent(filter, PageRequest.of(0, 1))).thenReturn(list);
+		Mockito.when(repository.countViews(filter, BookCountMode.CAP + 1)).thenReturn((long) BookCountMode.CAP + 1);
+
+		Page<BookView> results = service.find(filter, PageRequest.of(0, 1), BookCountMode.CAPPED);
+
+		assertThat(results.getTotalElements()).isEqualTo(BookCountMode.CAP + 1);
+		Mockito.verify(repository, Mockito.never()).countViews(filter);
+	}
+
+	@Test
+	@DisplayName("Should still tell a next page follows when a capped page lies beyond the cap")
+	public void findBookCappedCountBeyondCapTest() {
+		Book filter = new Book("book", null, null);
+		PageRequest pageRequest = PageRequest.of(60, 20);
+		List<BookView> list = LongStream.range(0, 20)
+			.mapToObj(id -> new BookView(id, "My book", "Author", "123456", 0l))
+			.collect(Collectors.toList());
+		Mockito.when(repository.findViewContent(filter, pageRequest)).thenReturn(list);
+		Mockito.when(repository.existsViewAt(filter, 1220)).thenReturn(true);
+
+		Page<BookView> results = service.find(filter, pageRequest, BookCountMode.CAPPED);
+
+		assertThat(results.getTotalElements()).isEqualTo(1221);
+		assertThat(results.hasNext()).isTrue();
+		assertThat(BookCountMode.isLowerBound(results)).isTrue();
+		Mockito.verify(repository, Mockito.never()).countViews(Mockito.eq(filter), Mockito.anyInt());
+
+		Mockito.when(repository.existsViewAt(filter, 1220)).thenReturn(false);
+
+		results = service.find(filter, pageRequest, BookCountMode.CAPPED);
+
+		assertThat(results.getTotalElements()).isEqualTo(1220);
+		assertThat(results.isLast()).isTrue();
+		assertThat(BookCountMode.isLowerBound(results)).isFalse();
+	}
+
+	@Test
+	@DisplayName("Should find the slice after the cursor ordering by the sort key and the id")
+	@SuppressWarnings("unchecked")
+	public void findAfterTest() {
+		Book book = createNewBook();
+		Sort sort = Sort.by(Direction.DESC, "title").and(Sort.by(Direction.DESC, "id"));
+		Slice<Book> slice = new SliceImpl<>(Arrays.asList(book), PageRequest.of(0, 1, sort), true);
+		Mockito.when(repository.findSlice(Mockito.any(Specification.class), Mockito.eq(sort), Mockito.eq(1)))
+			.thenReturn(slice);
+
+		BookCursor cursor = new BookCursor("title", Direction.DESC, "Z book", 9l);
+		Slice<Book> result = service.findAfter(new Book(null, null, null), cursor, PageRequest.of(0, 1));
+
+		assertThat(result.getContent()).containsExactly(book);
+		BookCursor next = BookCursor.decode(BookCursor.next(result).encode());
+		assertThat(next.getProperty()).isEqualTo("title");
+		assertThat(next.getDirection()).isEqualTo(Direction.DESC);
+		assertThat(next.getValue()).isEqualTo(book.getTitle());
+		assertThat(next.getId()).isEqualTo(book.getId());
+	}
+
+	@Test
+	@DisplayName("Should keep ignoring case in the cursor of the next slice")
+	@SuppressWarnings("unchecked")
+	public void findAfterIgnoringCaseTest() {
+		Book book = createNewBook();
+		Sort sort = Sort.by(Sort.Order.asc("title").ignoreCase()).and(Sort.by("id"));
+		Slice<Book> slice = new SliceImpl<>(Arrays.asList(book), PageRequest.of(0, 1, sort), true);
+		Mockito.when(repository.findSlice(Mockito.any(Specification.class), Mockito.eq(sort), Mockito.eq(1)))
+			.thenReturn(slice);
+
+		Slice<Book> first = service.findAfter(new Book(null, null, null), null, PageRequest.of(0, 1, sort));
+		BookCursor next = BookCursor.decode(BookCursor.next(first).encode());
+		service.findAfter(new Book(null, null, null), next, PageRequest.of(0, 1));
+
+		assertThat(next.isIgnoreCase()).isTrue();
+		assertThat(next.getOrder()).isEqualTo(Sort.Order.asc("title").ignoreCase());
+		Mockito.verify(repository, Mockito.times(2)).findSlice(Mockito.any(Specification.class), Mockito.eq(sort),
+				Mockito.eq(1));
+	}
+
+	@Test
+	@DisplayName("Should reject keyset pagination by an unknown property")
+	public void findAfterInvalidSortTest() {
+		Assertions.assertThrows(IllegalArgumentException.class,
+				() -> service.findAfter(new Book(null, null, null), null, PageRequest.of(0, 10, Sort.by("publisher"))));
+	}
+
+	@Test
+	@DisplayName("Should search books by text")
+	public void searchTest() {
+		Page<BookView> page = new PageImpl<>(Arrays.asList(new BookView(1l, "My book", "Author", "123456", 0l)),
+				PageRequest.of(0, 10), 1);
+		Mockito.when(repository.search("my book", PageRequest.of(0, 10))).thenReturn(page);
+
+		assertThat(service.search("my book", PageRequest.of(0, 10))).isSameAs(page);
+	}
+
+	@Test
+	@DisplayName("Should return an error when the search text is empty")
+	public void searchEmptyTextTest() {
+		Assertions.assertThrows(IllegalArgumentException.class, () -> service.search(" ", PageRequest.of(0, 10)));
+		Mockito.verify(repository, Mockito.never()).search(Mockito.anyString(), Mockito.any());
+	}
+
+	private DataIntegrityViolationException duplicatedIsbnViolation() {
+		return new DataIntegrityViolationException("could not execute statement",
+				new ConstraintViolationException("Unique index or primary key violation", new SQLException(),
+						"PUBLIC.UX_BOOK_ISBN_INDEX_1"));
+	}
+
+	@Test
+	@DisplayName("Should read the changes after an id, at most a thousand at once")
+	public void findChangesTest() {
+		List<BookChange> changes = Collections.singletonList(new BookChange(BookChange.Type.CREATE, createNewBook()));
+		Mockito.when(changeLog.findAfter(5, 100)).thenReturn(changes);
+
+		assertThat(service.findChanges(5, 100)).isSameAs(changes);
+		assertThat(catchThrowable(() -> service.findChanges(5, 1001))).isInstanceOf(IllegalArgumentException.class);
+		assertThat(catchThrowable(() -> service.findChanges(5, 0))).isInstanceOf(IllegalArgumentException.class);
+	}
+
 	private Book createNewBook() {
 		return new Book(1l, "My book", "Author", "123456");
 	}
+
+	private static BookChange change(Long id, BookChange.Type type, String isbn) {
+		BookChange change = new BookChange(type, new Book(id, "My book", "Author", isbn));
+		change.setId(id);
+		return change;
+	}
 }
@@ -0,0 +1,211 @@
+package br.com.project.libraryapi.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mockito;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import br.com.project.libraryapi.config.WriteBehindProperties;
+import br.com.project.libraryapi.exception.BusinessException;
+import br.com.project.libraryapi.model.entity.Book;
+import br.com.project.libraryapi.service.BookWriteStatus.State;
+import br.com.project.libraryapi.service.impl.BookWriteBehindQueue;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+public class BookWriteBehindQueueTest {
+
+	@MockBean
+	BookService service;
+
+	@MockBean
+	PlatformTransactionManager transactionManager;
+
+	@TempDir
+	Path directory;
+
+	WriteBehindProperties properties;
+
+	@BeforeEach
+	public void setUp() {
+		properties = new WriteBehindProperties();
+		properties.setJournal(directory.resolve("write-behind.journal"));
+	}
+
+	@Test
+	@DisplayName("Should write queued creations in one batch")
+	public void createTest() throws Exception {
+		BookWriteBehindQueue queue = newQueue();
+		Book first = new Book("My book", "Author", "123");
+		Book second = new Book("Other book", "Author", "123");
+		Mockito.when(service.saveAll(Arrays.asList(first, second))).thenReturn(Arrays.asList(
+				BookSaveResult.saved(new Book(1l, "My book", "Author", "123")),
+				BookSaveResult.rejected(second, "Isbn is already in use.")));
+
+		BookWriteStatus created = queue.create(first);
+		BookWriteStatus rejected = queue.create(second);
+		assertThat(queue.status(created.getTicket()).get().getState()).isEqualTo(State.PENDING);
+
+		queue.flush();
+
+		assertThat(queue.status(created.getTicket()).get().getState()).isEqualTo(State.DONE);
+		assertThat(queue.status(created.getTicket()).get().getBookId()).isEqualTo(1l);
+		assertThat(queue.status(rejected.getTicket()).get().getState()).isEqualTo(State.FAILED);
+		assertThat(queue.pending()).isZero();
+	}
+
+	@Test
+	@DisplayName("Should coalesce pending updates of the same book")
+	public void coalesceUpdatesTest() throws Exception {
+		BookWriteBehindQueue queue = newQueue();
+		Book last = new Book(1l, "Third title", "Author", "123");
+		Mockito.when(service.update(last)).thenReturn(Optional.of(last));
+
+		BookWriteStatus first = queue.update(new Book(1l, "First title", "Author", "123"));
+		queue.update(new Book(1l, "Second title", "Author", "123"));
+		queue.update(last);
+		assertThat(queue.pending()).isEqualTo(1);
+
+		queue.flush();
+
+		Mockito.verify(service, Mockito.times(1)).update(Mockito.any(Book.class));
+		assertThat(queue.status(first.getTicket()).get().getState()).isEqualTo(State.DONE);
+	}
+
+	@Test
+	@DisplayName("Should retry the changes of a failed batch one by one")
+	public void failedBatchTest() throws Exception {
+		BookWriteBehindQueue queue = newQueue();
+		Book valid = new Book(1l, "Title", "Author", "123");
+		Book duplicated = new Book(2l, "Title", "Author", "123");
+		Mockito.when(service.update(valid)).thenReturn(Optional.of(valid));
+		Mockito.when(service.update(duplicated)).thenThrow(new BusinessException("Isbn is already in use."));
+
+		BookWriteStatus validStatus = queue.update(valid);
+		BookWriteStatus duplicatedStatus = queue.update(duplicated);
+		queue.flush();
+
+		assertThat(queue.status(validStatus.getTicket()).get().getState()).isEqualTo(State.DONE);
+		assertThat(queue.status(duplicatedStatus.getTicket()).get().getError()).isEqualTo("Isbn is already in use.");
+	}
+
+	@Test
+	@DisplayName("Should refuse mutations when the queue is full")
+	public void backpressureTest() throws Exception {
+		properties.setCapacity(1);
+		BookWriteBehindQueue queue = newQueue();
+
+		queue.create(new Book("My book", "Author", "123"));
+
+		Assertions.assertThrows(RejectedExecutionException.class,
+				() -> queue.create(new Book("Other book", "Author", "456")));
+	}
+
+	@Test
+	@DisplayName("Should count mutations coalesced into a pending one against the capacity")
+	public void coalescedBackpressureTest() throws Exception {
+		properties.setCapacity(2);
+		BookWriteBehindQueue queue = newQueue();
+		Mockito.when(service.update(Mockito.any(Book.class))).thenAnswer(i -> Optional.of(i.getArgument(0)));
+
+		queue.update(new Book(1l, "First title", "Author", "123"));
+		queue.update(new Book(1l, "Second title", "Author", "123"));
+
+		Assertions.assertThrows(RejectedExecutionException.class,
+				() -> queue.update(new Book(1l, "Third title", "Author", "123")));
+
+		queue.flush();
+		queue.update(new Book(1l, "Third title", "Author", "123"));
+	}
+
+	@Test
+	@DisplayName("Should compact the journal when the queue never drains")
+	public void compactJournalTest() throws Exception {
+		properties.setBatchSize(1);
+		BookWriteBehindQueue queue = newQueue();
+		int mutations = 5000;
+		long[] journalSize = new long[1];
+		Mockito.when(service.update(Mockito.any(Book.class))).thenAnswer(invocation -> {
+			Book book = invocation.getArgument(0);
+			if (book.getId() < mutations) {
+				// each write queues the next one, so the queue is never empty between batches
+				queue.update(new Book(book.getId() + 1, "Title", "Author", String.valueOf(book.getId() + 1)));
+			} else {
+				journalSize[0] = Files.readAllLines(properties.getJournal()).size();
+			}
+			return Optional.of(book);
+		});
+
+		queue.update(new Book(1l, "Title", "Author", "1"));
+		queue.flush();
+
+		Mockito.verify(service, Mockito.times(mutations)).update(Mockito.any(Book.class));
+		assertThat(journalSize[0]).isLessThan(2 * 1000);
+		assertThat(Files.size(properties.getJournal())).isZero();
+		assertThat(newQueue().pending()).isZero();
+	}
+
+	@Test
+	@DisplayName("Should replay journaled mutations that were not written")
+	public void replayJournalTest() throws Exception {
+		BookWriteBehindQueue crashed = newQueue();
+		crashed.delete(1l);
+		crashed.update(new Book(2l, "Title", "Author", "123"));
+
+		BookWriteBehindQueue restarted = newQueue();
+		assertThat(restarted.pending()).isEqualTo(2);
+
+		Mockito.when(service.update(Mockito.any(Book.class))).thenAnswer(i -> Optional.of(i.getArgument(0)));
+		restarted.flush();
+
+		Mockito.verify(service).delete(1l);
+		Mockito.verify(service).update(Mockito.argThat(book -> book.getId() == 2l));
+		assertThat(newQueue().pending()).isZero();
+	}
+
+	@Test
+	@DisplayName("Should keep polling pending tickets and evict only the oldest finished ones")
+	public void retainedResultsTest() throws Exception {
+		properties.setRetainedResults(1);
+		BookWriteBehindQueue queue = newQueue();
+		Mockito.when(service.update(Mockito.any(Book.class))).thenAnswer(invocation -> Optional.of(
+				invocation.getArgument(0)));
+
+		BookWriteStatus finished = queue.update(new Book(2l, "Other title", "Author", "456"));
+		queue.flush();
+		BookWriteStatus[] pending = new BookWriteStatus[5];
+		for (int i = 0; i < pending.length; i++) {
+			pending[i] = queue.update(new Book(1l, "Title " + i, "Author", "123"));
+		}
+
+		assertThat(pending).allMatch(status -> queue.status(status.getTicket()).isPresent());
+		assertThat(queue.status(finished.getTicket())).isPresent();
+
+		queue.flush();
+
+		assertThat(queue.status(finished.getTicket())).isEmpty();
+		assertThat(queue.status(pending[4].getTicket()).get().getState()).isEqualTo(State.DONE);
+	}
+
+	private BookWriteBehindQueue newQueue() throws Exception {
+		return new BookWriteBehindQueue(service, transactionManager, new ObjectMapper(), properties);
+	}
+
+}
@@ -0,0 +1,3 @@
+create table if not exists book (id bigint not null, author varchar(255), isbn varchar(255), title varchar(255),
+	updated_at timestamp, version bigint, primary key (id));
+merge into book (id, author, isbn, title, version) key (id) values (1000, 'Replica', 'r-1', 'Replica book', 0);